@@ -0,0 +1,118 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.json.stream.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 基准测试用的固定数据：按种子生成资源，拼成与ES返回格式一致的search响应，无需集群
+ */
+final class CannedSearchResponses {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private CannedSearchResponses() {
+    }
+
+    static List<KnowledgeGraphMarkResultEntity> entities(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        KnowledgeGraphTagSampler sampler = KnowledgeGraphTagSampler.uniform(KnowledgeGraphDataGenerator.TAG_IDS.length);
+        List<KnowledgeGraphMarkResultEntity> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            KnowledgeGraphMarkResultEntity entity = KnowledgeGraphDataGenerator.next(random, i, sampler, 10);
+            long now = System.currentTimeMillis();
+            entity.setCourseDocId("course_" + random.nextInt(1000));
+            entity.setCreateTime(now);
+            entity.setUpdateTime(now);
+            entity.setCreateAtTime(now);
+            entity.setUpdateAtTime(now);
+            entity.setSort(i);
+            result.add(entity);
+        }
+        return result;
+    }
+
+    static List<KnowledgeGraphMarkResultResponse> responses(List<KnowledgeGraphMarkResultEntity> entities) {
+        List<KnowledgeGraphMarkResultResponse> result = new ArrayList<>(entities.size());
+        for (KnowledgeGraphMarkResultEntity entity : entities) {
+            result.add(copy(entity));
+        }
+        return result;
+    }
+
+    /**
+     * _source过滤前的映射方式：entity逐字段复制到response
+     */
+    static KnowledgeGraphMarkResultResponse copy(KnowledgeGraphMarkResultEntity source) {
+        KnowledgeGraphMarkResultResponse e = new KnowledgeGraphMarkResultResponse();
+        e.setResourceId(source.getResourceId());
+        e.setTagIdList(source.getTagIdList());
+        e.setResourceType(source.getResourceType());
+        e.setResourceSubtype(source.getResourceSubtype());
+        e.setSectionTagIds(source.getSectionTagIds());
+        e.setGradeTagIds(source.getGradeTagIds());
+        return e;
+    }
+
+    /**
+     * search响应的JSON字节，_source为传入对象
+     */
+    static byte[] searchResponse(List<?> sources) throws IOException {
+        List<Map<String, Object>> hits = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            Map<String, Object> hit = new LinkedHashMap<>();
+            hit.put("_index", KnowledgeGraphService.index_name);
+            hit.put("_id", String.valueOf(i));
+            hit.put("_score", null);
+            hit.put("_source", sources.get(i));
+            hit.put("sort", Arrays.asList(i));
+            hits.add(hit);
+        }
+        Map<String, Object> total = new LinkedHashMap<>();
+        total.put("value", 10000);
+        total.put("relation", "gte");
+        Map<String, Object> hitsObject = new LinkedHashMap<>();
+        hitsObject.put("total", total);
+        hitsObject.put("max_score", null);
+        hitsObject.put("hits", hits);
+        Map<String, Object> shards = new LinkedHashMap<>();
+        shards.put("total", 1);
+        shards.put("successful", 1);
+        shards.put("skipped", 0);
+        shards.put("failed", 0);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("took", 3);
+        response.put("timed_out", false);
+        response.put("_shards", shards);
+        response.put("hits", hitsObject);
+        return OBJECT_MAPPER.writeValueAsBytes(response);
+    }
+
+    static <T> SearchResponse<T> parse(byte[] json, Class<T> documentClass, JsonpMapper mapper) {
+        JsonpDeserializer<SearchResponse<T>> deserializer =
+                SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(documentClass));
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(json))) {
+            return deserializer.deserialize(parser, mapper);
+        }
+    }
+
+    static KnowledgeGraphTestQueryRequest request(int tagCount, int subtypeCount) {
+        KnowledgeGraphTestQueryRequest request = new KnowledgeGraphTestQueryRequest();
+        request.setTagIdList(Arrays.asList(Arrays.copyOf(KnowledgeGraphDataGenerator.TAG_IDS, tagCount)));
+        request.setResourceSubtypeList(Arrays.asList(Arrays.copyOf(KnowledgeGraphDataGenerator.RESOURCE_TYPES, subtypeCount)));
+        request.setPageNum(3);
+        request.setPageSize(100);
+        return request;
+    }
+}
@@ -0,0 +1,50 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * countEmptyPage的bool/should写法与queryTerms的terms写法对比，均含序列化
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CountQueryBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int tagCount;
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+    private KnowledgeGraphTestQueryRequest request;
+
+    @Setup
+    public void setup() {
+        request = CannedSearchResponses.request(tagCount, KnowledgeGraphDataGenerator.RESOURCE_TYPES.length);
+    }
+
+    @Benchmark
+    public byte[] terms() {
+        return QueryDslBenchmark.toJson(KnowledgeGraphService.buildQuery(request), mapper);
+    }
+
+    @Benchmark
+    public byte[] boolShould() {
+        return QueryDslBenchmark.toJson(KnowledgeGraphService.buildCountRequest(request), mapper);
+    }
+}
@@ -0,0 +1,69 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.stressTest.util.PageResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一页hits从响应字节到PageResult：
+ * projected为_source过滤后直接映射response，fullSource为完整_source解析成entity再复制
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HitMappingBenchmark {
+
+    @Param({"100", "1000"})
+    private int hits;
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+    private byte[] projectedJson;
+    private byte[] fullSourceJson;
+
+    @Setup
+    public void setup() throws IOException {
+        List<KnowledgeGraphMarkResultEntity> entities = CannedSearchResponses.entities(hits, 42);
+        projectedJson = CannedSearchResponses.searchResponse(CannedSearchResponses.responses(entities));
+        fullSourceJson = CannedSearchResponses.searchResponse(entities);
+    }
+
+    @Benchmark
+    public PageResult<KnowledgeGraphMarkResultResponse> projected() {
+        SearchResponse<KnowledgeGraphMarkResultResponse> esResponse =
+                CannedSearchResponses.parse(projectedJson, KnowledgeGraphMarkResultResponse.class, mapper);
+        return KnowledgeGraphService.toPageResult(esResponse);
+    }
+
+    @Benchmark
+    public PageResult<KnowledgeGraphMarkResultResponse> fullSource() {
+        SearchResponse<KnowledgeGraphMarkResultEntity> esResponse =
+                CannedSearchResponses.parse(fullSourceJson, KnowledgeGraphMarkResultEntity.class, mapper);
+        PageResult<KnowledgeGraphMarkResultResponse> pageResult = new PageResult<>();
+        for (Hit<KnowledgeGraphMarkResultEntity> hit : esResponse.hits().hits()) {
+            pageResult.getPageData().add(CannedSearchResponses.copy(hit.source()));
+        }
+        pageResult.setTotalSize(BigInteger.valueOf(esResponse.hits().total().value()));
+        return pageResult;
+    }
+}
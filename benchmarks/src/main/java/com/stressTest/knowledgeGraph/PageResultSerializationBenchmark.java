@@ -0,0 +1,54 @@
+package com.stressTest.knowledgeGraph;
+
+import com.alibaba.fastjson.JSON;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stressTest.util.PageResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PageResult序列化：Jackson（Spring MVC默认）与fastjson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageResultSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PageResult<KnowledgeGraphMarkResultResponse> pageResult;
+
+    @Setup
+    public void setup() {
+        pageResult = new PageResult<>(CannedSearchResponses.responses(CannedSearchResponses.entities(pageSize, 42)),
+                BigInteger.valueOf(10000));
+    }
+
+    @Benchmark
+    public byte[] jackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(pageResult);
+    }
+
+    @Benchmark
+    public byte[] fastjson() {
+        return JSON.toJSONBytes(pageResult);
+    }
+}
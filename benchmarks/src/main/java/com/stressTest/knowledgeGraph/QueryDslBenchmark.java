@@ -0,0 +1,62 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * queryTerms的查询DSL构造：只建对象，以及建对象并序列化为请求体
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryDslBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int tagCount;
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+    private KnowledgeGraphTestQueryRequest request;
+
+    @Setup
+    public void setup() {
+        request = CannedSearchResponses.request(tagCount, 2);
+    }
+
+    @Benchmark
+    public SearchRequest build() {
+        return KnowledgeGraphService.buildSearchRequest(request);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialize() {
+        return toJson(KnowledgeGraphService.buildSearchRequest(request), mapper);
+    }
+
+    static byte[] toJson(JsonpSerializable value, JsonpMapper mapper) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(buffer)) {
+            value.serialize(generator, mapper);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,49 @@
+package com.stressTest.knowledgeGraph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 随机抽样工具方法，样本为全部标签
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RandomSamplingBenchmark {
+
+    /**
+     * 只作用于getRandomElements
+     */
+    @State(Scope.Benchmark)
+    public static class Sample {
+        @Param({"1", "10", "100"})
+        private int count;
+    }
+
+    private final List<String> tagIds = Arrays.asList(KnowledgeGraphDataGenerator.TAG_IDS);
+
+    @Benchmark
+    public String getRandomElement() {
+        return KnowledgeGraphService.getRandomElement(tagIds);
+    }
+
+    @Benchmark
+    public List<String> getRandomElements(Sample sample) {
+        return KnowledgeGraphService.getRandomElements(tagIds, sample.count);
+    }
+}
@@ -1,22 +1,35 @@
 package com.stressTest.controller;
 
+import com.stressTest.knowledgeGraph.KnowledgeGraphBulkInsertResult;
+import com.stressTest.knowledgeGraph.KnowledgeGraphChangeFeed;
+import com.stressTest.knowledgeGraph.KnowledgeGraphExportRequest;
+import com.stressTest.knowledgeGraph.KnowledgeGraphExportService;
 import com.stressTest.knowledgeGraph.KnowledgeGraphInsertRequest;
+import com.stressTest.knowledgeGraph.KnowledgeGraphLocalIndex;
+import com.stressTest.knowledgeGraph.KnowledgeGraphMarkResultEntity;
 import com.stressTest.knowledgeGraph.KnowledgeGraphMarkResultResponse;
+import com.stressTest.knowledgeGraph.KnowledgeGraphQueryCache;
+import com.stressTest.knowledgeGraph.KnowledgeGraphQueryCacheStats;
 import com.stressTest.knowledgeGraph.KnowledgeGraphService;
 import com.stressTest.knowledgeGraph.KnowledgeGraphTestQueryRequest;
+import com.stressTest.knowledgeGraph.KnowledgeGraphWriteResult;
+import com.stressTest.util.EsClient;
+import com.stressTest.util.EsConcurrencyLimiter;
+import com.stressTest.util.LatencyRecorder;
+import com.stressTest.util.LatencySnapshot;
 import com.stressTest.util.PageResult;
+import com.stressTest.util.SingleFlight;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class HelloController {
@@ -24,20 +37,25 @@ public class HelloController {
     @Resource
     private KnowledgeGraphService knowledgeGraphService;
 
-    private BufferedWriter writer;
+    @Resource
+    private KnowledgeGraphExportService knowledgeGraphExportService;
 
-    @PostConstruct
-    public void init() throws IOException {
-        // 初始化 BufferedWriter
-        writer = new BufferedWriter(new FileWriter("execution_time.log", true));
-    }
-    @PreDestroy
-    public void destroy() throws IOException {
-        // 关闭 BufferedWriter
-        if (writer != null) {
-            writer.close();
-        }
-    }
+    @Resource
+    private KnowledgeGraphQueryCache knowledgeGraphQueryCache;
+
+    @Resource
+    private LatencyRecorder latencyRecorder;
+
+    @Resource
+    private EsClient esClient;
+
+    @Resource
+    private KnowledgeGraphLocalIndex knowledgeGraphLocalIndex;
+
+    @Resource
+    private KnowledgeGraphChangeFeed knowledgeGraphChangeFeed;
+    @Resource
+    private EsConcurrencyLimiter esConcurrencyLimiter;
 
     @GetMapping("/hello")
     public String hello(String param) {
@@ -47,32 +65,125 @@ public class HelloController {
 
     @PostMapping("/query")
     public PageResult<KnowledgeGraphMarkResultResponse> query(@RequestBody KnowledgeGraphTestQueryRequest request) {
-        long startTime = System.currentTimeMillis(); // 记录开始时间
-
+        long startNanos = System.nanoTime();
         try {
             return knowledgeGraphService.queryTerms(request);
         } finally {
-            long endTime = System.currentTimeMillis(); // 记录结束时间
-            long duration = endTime - startTime;
-
-            // 获取当前时间戳
-            String timestamp = Instant.now().toString();
-            String logEntry = String.format("Timestamp: %s, Execution Time: %d ms%n", timestamp, duration);
-
-            // 写入日志
-            try {
-                synchronized (writer) {
-                    writer.write(logEntry);
-                    writer.flush(); // 确保写入立即生效
-                }
-            } catch (IOException e) {
-                e.printStackTrace(); // 处理写入异常
-            }
+            latencyRecorder.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * 异步版/query：ES往返期间不占用servlet线程
+     */
+    @PostMapping("/queryAsync")
+    public CompletableFuture<PageResult<KnowledgeGraphMarkResultResponse>> queryAsync(@RequestBody KnowledgeGraphTestQueryRequest request) {
+        long startNanos = System.nanoTime();
+        return knowledgeGraphService.queryTermsAsync(request)
+                .whenComplete((result, e) -> latencyRecorder.recordSince(startNanos));
+    }
+
+    /**
+     * 原样透传ES的hits，不构建中间对象
+     */
+    @PostMapping("/queryRaw")
+    public void queryRaw(@RequestBody KnowledgeGraphTestQueryRequest request, HttpServletResponse response) throws IOException {
+        long startNanos = System.nanoTime();
+        try {
+            response.setContentType("application/json");
+            knowledgeGraphService.queryTermsRaw(request, response.getOutputStream());
+        } finally {
+            latencyRecorder.recordSince(startNanos);
         }
     }
 
+    /**
+     * /query延迟分位数：最近一个区间与启动以来
+     */
+    @GetMapping("/latency")
+    public Map<String, LatencySnapshot> latency() {
+        Map<String, LatencySnapshot> result = new LinkedHashMap<>();
+        result.put("interval", latencyRecorder.getIntervalSnapshot());
+        result.put("cumulative", latencyRecorder.getCumulativeSnapshot());
+        return result;
+    }
+
+    @GetMapping("/cache/stats")
+    public KnowledgeGraphQueryCacheStats cacheStats() {
+        return knowledgeGraphQueryCache.stats();
+    }
+
+    @PostMapping("/cache/invalidate")
+    public void invalidateCache() {
+        knowledgeGraphQueryCache.invalidateAll();
+    }
+
+    /**
+     * 请求合并统计
+     */
+    @GetMapping("/singleFlight/stats")
+    public Map<String, Long> singleFlightStats() {
+        SingleFlight<?, ?> singleFlight = knowledgeGraphService.getSingleFlight();
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("leaderCount", singleFlight.getLeaderCount());
+        result.put("coalescedCount", singleFlight.getCoalescedCount());
+        result.put("timeoutCount", singleFlight.getTimeoutCount());
+        result.put("inFlightCount", (long) singleFlight.getInFlightCount());
+        return result;
+    }
+
+    /**
+     * 本地倒排索引状态
+     */
+    @GetMapping("/localIndex/stats")
+    public Map<String, Object> localIndexStats() {
+        return knowledgeGraphLocalIndex.stats();
+    }
+
+    /**
+     * 增量变更流状态
+     */
+    @GetMapping("/changeFeed/stats")
+    public Map<String, Object> changeFeedStats() {
+        return knowledgeGraphChangeFeed.stats();
+    }
+
+    /**
+     * ES并发上限、在途数与拒绝次数
+     */
+    @GetMapping("/limiter/stats")
+    public Map<String, Object> limiterStats() {
+        return esConcurrencyLimiter.stats();
+    }
+
+    /**
+     * ES连接池使用情况
+     */
+    @GetMapping("/es/pool")
+    public Map<String, Object> esPoolStats() {
+        return esClient.getPoolStats();
+    }
+
+    /**
+     * 全量导出匹配的资源，NDJSON分块传输；直接写响应流，不受异步请求超时限制
+     */
+    @PostMapping("/export")
+    public void export(@RequestBody KnowledgeGraphExportRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        knowledgeGraphExportService.export(request, response.getOutputStream());
+    }
+
+    /**
+     * 写入单个文档，经写缓冲合并为_bulk
+     */
+    @PostMapping("/insert")
+    public CompletableFuture<KnowledgeGraphWriteResult> insert(@RequestBody KnowledgeGraphMarkResultEntity entity) {
+        return knowledgeGraphService.insert(entity);
+    }
+
     @PostMapping("/batchInsert")
-    public void batchInsert(@RequestBody KnowledgeGraphInsertRequest request) {
-        knowledgeGraphService.batchInsert(request);
+    public KnowledgeGraphBulkInsertResult batchInsert(@RequestBody KnowledgeGraphInsertRequest request) {
+        return knowledgeGraphService.batchInsert(request);
     }
 }
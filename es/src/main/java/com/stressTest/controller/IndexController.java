@@ -0,0 +1,57 @@
+package com.stressTest.controller;
+
+import com.stressTest.knowledgeGraph.KnowledgeGraphIndexManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class IndexController {
+
+    @Resource
+    private KnowledgeGraphIndexManager indexManager;
+
+    /**
+     * 别名当前指向的索引及所有版本的文档数
+     */
+    @GetMapping("/index/stats")
+    public Map<String, Object> stats() throws IOException {
+        return indexManager.stats();
+    }
+
+    /**
+     * 新建空索引，不切换别名
+     */
+    @PostMapping("/index/create")
+    public String create(@RequestParam(defaultValue = KnowledgeGraphIndexManager.OPTIMIZED) String variant) throws IOException {
+        return indexManager.create(variant);
+    }
+
+    /**
+     * 从别名当前的数据重建索引，switchAlias=true时文档数一致后切换别名；
+     * 别名指向optimized索引时会丢失不在_source中的字段，需要allowFieldLoss=true
+     */
+    @PostMapping("/index/reindex")
+    public Map<String, Object> reindex(@RequestParam(defaultValue = KnowledgeGraphIndexManager.OPTIMIZED) String variant,
+                                       @RequestParam(defaultValue = "true") boolean switchAlias,
+                                       @RequestParam(defaultValue = "false") boolean allowFieldLoss) throws IOException {
+        return indexManager.reindex(variant, switchAlias, allowFieldLoss);
+    }
+
+    /**
+     * 切换别名到指定索引，可用于回滚；别名尚未建立时会删除同名的旧索引，
+     * 指定索引的文档数少于它时需要dropLegacy=true
+     */
+    @PostMapping("/index/switch")
+    public List<String> switchAlias(@RequestParam String indexName,
+                                    @RequestParam(defaultValue = "false") boolean dropLegacy) throws IOException {
+        indexManager.switchAlias(indexName, dropLegacy);
+        return indexManager.currentIndices();
+    }
+}
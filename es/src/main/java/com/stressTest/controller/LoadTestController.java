@@ -0,0 +1,42 @@
+package com.stressTest.controller;
+
+import com.stressTest.loadTest.LoadTestDriver;
+import com.stressTest.loadTest.LoadTestReport;
+import com.stressTest.loadTest.LoadTestRequest;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.Map;
+
+@RestController
+public class LoadTestController {
+
+    @Resource
+    private LoadTestDriver loadTestDriver;
+
+    /**
+     * 同步执行一次压测，结束后返回吞吐量与延迟分位数
+     */
+    @PostMapping("/loadTest")
+    public LoadTestReport loadTest(@RequestBody LoadTestRequest request) {
+        return loadTestDriver.run(request);
+    }
+
+    /**
+     * 依次压测/query与/queryAsync，对比阻塞与异步路径
+     */
+    @PostMapping("/loadTest/compareSyncAsync")
+    public Map<String, LoadTestReport> compareSyncAsync(@RequestBody LoadTestRequest request) {
+        return loadTestDriver.compareSyncAsync(request);
+    }
+
+    /**
+     * 相同的请求序列依次压测indexNames中的索引，对比不同mapping变体
+     */
+    @PostMapping("/loadTest/compareIndices")
+    public Map<String, LoadTestReport> compareIndices(@RequestBody LoadTestRequest request) {
+        return loadTestDriver.compareIndices(request);
+    }
+}
@@ -0,0 +1,52 @@
+package com.stressTest.controller;
+
+import com.stressTest.util.QueryStageMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.annotation.Resource;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 查询接口的HTTP层耗时：total为整个请求，handler为开始写响应体之前，serialization为响应体序列化及写出。
+ * 开始写响应体的时间由QueryStageTimingAdvice记录。
+ */
+@Component
+public class QueryStageTimingFilter extends OncePerRequestFilter {
+
+    static final String BODY_WRITE_NANOS = QueryStageTimingFilter.class.getName() + ".bodyWriteNanos";
+
+    private static final Set<String> PATHS = new HashSet<>(Arrays.asList(QueryStageMetrics.QUERY, QueryStageMetrics.QUERY_RAW));
+
+    @Resource
+    private QueryStageMetrics stageMetrics;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !PATHS.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long startNanos = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            String op = request.getServletPath();
+            long endNanos = stageMetrics.recordSince(op, QueryStageMetrics.TOTAL, startNanos);
+            Object bodyWriteNanos = request.getAttribute(BODY_WRITE_NANOS);
+            if (bodyWriteNanos instanceof Long) {
+                stageMetrics.record(op, QueryStageMetrics.HANDLER, (Long) bodyWriteNanos - startNanos);
+                stageMetrics.record(op, QueryStageMetrics.SERIALIZATION, endNanos - (Long) bodyWriteNanos);
+            }
+        }
+    }
+}
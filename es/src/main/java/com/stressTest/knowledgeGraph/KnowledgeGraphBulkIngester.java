@@ -0,0 +1,381 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.indices.GetIndicesSettingsResponse;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于_bulk API的批量导入：按文档数/字节数攒批，多个bulk请求并发在途，
+ * 在途数达到上限时阻塞生产方；429及网络异常按指数退避重试，导入结束后统一refresh一次。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphBulkIngester {
+
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    @Resource
+    ElasticsearchClient client;
+    @Resource
+    RestClient restClient;
+
+    /**
+     * 关闭了refresh的会话按索引计数：第一个会话记录原值并关闭，最后一个结束的会话恢复
+     */
+    private final Map<String, RefreshHold> refreshHolds = new HashMap<>();
+    @Resource
+    private KnowledgeGraphRoutingStrategy routingStrategy;
+
+    /**
+     * 进行中的会话数；重建索引期间为-1，不能开启新会话
+     */
+    private int activeSessions;
+
+    public Session open(String indexName, KnowledgeGraphInsertRequest options) {
+        if (KnowledgeGraphService.index_name.equals(indexName)) {
+            routingStrategy.checkWritable();
+        }
+        synchronized (refreshHolds) {
+            if (activeSessions < 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "index is being rebuilt, bulk ingestion is not allowed");
+            }
+            activeSessions++;
+        }
+        try {
+            return new Session(indexName, options);
+        } catch (RuntimeException e) {
+            endSession();
+            throw e;
+        }
+    }
+
+    /**
+     * 重建索引期间禁止批量导入（导入的数据不会复制到新索引）；有会话进行中时返回false
+     */
+    public boolean beginExclusive() {
+        synchronized (refreshHolds) {
+            if (activeSessions != 0) {
+                return false;
+            }
+            activeSessions = -1;
+            return true;
+        }
+    }
+
+    public void endExclusive() {
+        synchronized (refreshHolds) {
+            activeSessions = 0;
+        }
+    }
+
+    private void endSession() {
+        synchronized (refreshHolds) {
+            activeSessions--;
+        }
+    }
+
+    /**
+     * 一次导入会话，add可被多个线程并发调用，finish时等待所有在途请求完成并返回统计
+     */
+    public class Session {
+        private final String indexName;
+        private final KnowledgeGraphInsertRequest options;
+        private final ExecutorService executor;
+        private final Semaphore inFlight;
+        private final long startNanos = System.nanoTime();
+        private final boolean refreshDisabled;
+
+        private List<KnowledgeGraphMarkResultEntity> buffer = new ArrayList<>();
+        private long bufferBytes;
+
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+        private final AtomicLong bulkRequests = new AtomicLong();
+
+        private Session(String indexName, KnowledgeGraphInsertRequest options) {
+            this.indexName = indexName;
+            this.options = options;
+            int concurrency = Math.max(1, options.getConcurrency());
+            this.inFlight = new Semaphore(concurrency);
+            this.executor = Executors.newFixedThreadPool(concurrency,
+                    new ThreadFactoryBuilder().setNameFormat("kg-bulk-%d").setDaemon(true).build());
+            this.refreshDisabled = options.isDisableRefresh() && disableRefresh(indexName);
+        }
+
+        public void add(KnowledgeGraphMarkResultEntity entity) {
+            List<KnowledgeGraphMarkResultEntity> batch = null;
+            synchronized (this) {
+                total.incrementAndGet();
+                buffer.add(entity);
+                bufferBytes += estimateBytes(entity);
+                if (buffer.size() >= options.getBatchSize() || bufferBytes >= options.getMaxBatchBytes()) {
+                    batch = buffer;
+                    buffer = new ArrayList<>(options.getBatchSize());
+                    bufferBytes = 0;
+                }
+            }
+            if (batch != null) {
+                submit(batch);
+            }
+        }
+
+        private void submit(List<KnowledgeGraphMarkResultEntity> batch) {
+            // 背压：在途bulk请求已满时阻塞生产方
+            inFlight.acquireUninterruptibly();
+            try {
+                executor.execute(() -> {
+                    try {
+                        execute(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        private void execute(List<KnowledgeGraphMarkResultEntity> batch) {
+            List<KnowledgeGraphMarkResultEntity> pending = batch;
+            for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                if (attempt > 0) {
+                    if (attempt > options.getMaxRetries()) {
+                        failed.addAndGet(pending.size());
+                        return;
+                    }
+                    retried.addAndGet(pending.size());
+                    sleepQuietly(RETRY_BACKOFF_MS << (attempt - 1));
+                }
+                pending = bulk(pending);
+            }
+        }
+
+        /**
+         * 发送一次bulk请求，返回需要重试的文档
+         */
+        private List<KnowledgeGraphMarkResultEntity> bulk(List<KnowledgeGraphMarkResultEntity> batch) {
+            BulkRequest.Builder builder = new BulkRequest.Builder();
+            for (KnowledgeGraphMarkResultEntity entity : batch) {
+                builder.operations(BulkOperation.of(o -> o
+                        .index(i -> i
+                                .index(indexName)
+                                .id(KnowledgeGraphService.docId(entity))
+                                .routing(routingStrategy.routingOf(entity))
+                                .document(entity))));
+            }
+            BulkResponse response;
+            bulkRequests.incrementAndGet();
+            try {
+                response = client.bulk(builder.build());
+            } catch (IOException e) {
+                log.warn("KnowledgeGraphBulkIngester#bulk error, docs={}.", batch.size(), e);
+                return batch;
+            } catch (ElasticsearchException e) {
+                // 整个请求被拒绝（如线程池满429、请求过大413）
+                if (e.status() == 429) {
+                    rejected.addAndGet(batch.size());
+                    return batch;
+                }
+                failed.addAndGet(batch.size());
+                log.warn("KnowledgeGraphBulkIngester#bulk request error, docs={}, status={}.", batch.size(), e.status(), e);
+                return new ArrayList<>();
+            }
+            if (!response.errors()) {
+                succeeded.addAndGet(batch.size());
+                return new ArrayList<>();
+            }
+            List<KnowledgeGraphMarkResultEntity> retry = new ArrayList<>();
+            List<BulkResponseItem> items = response.items();
+            for (int i = 0; i < items.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                if (item.error() == null) {
+                    succeeded.incrementAndGet();
+                } else if (item.status() == 429) {
+                    rejected.incrementAndGet();
+                    retry.add(batch.get(i));
+                } else {
+                    failed.incrementAndGet();
+                    log.warn("KnowledgeGraphBulkIngester#bulk item error, id={}, reason={}.", item.id(), item.error().reason());
+                }
+            }
+            return retry;
+        }
+
+        public KnowledgeGraphBulkInsertResult finish() {
+            List<KnowledgeGraphMarkResultEntity> batch;
+            synchronized (this) {
+                batch = buffer;
+                buffer = new ArrayList<>();
+                bufferBytes = 0;
+            }
+            if (!batch.isEmpty()) {
+                submit(batch);
+            }
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (refreshDisabled) {
+                releaseRefresh(indexName);
+            }
+            refresh();
+            endSession();
+
+            long durationNanos = System.nanoTime() - startNanos;
+            KnowledgeGraphBulkInsertResult result = new KnowledgeGraphBulkInsertResult();
+            result.setTotal(total.get());
+            result.setSucceeded(succeeded.get());
+            result.setFailed(failed.get());
+            result.setRejected(rejected.get());
+            result.setRetried(retried.get());
+            result.setBulkRequests(bulkRequests.get());
+            result.setDurationMs(TimeUnit.NANOSECONDS.toMillis(durationNanos));
+            result.setDocsPerSecond(durationNanos == 0 ? 0 : succeeded.get() * 1e9 / durationNanos);
+            log.info("KnowledgeGraphBulkIngester#finish result={}.", result);
+            return result;
+        }
+
+        private void refresh() {
+            try {
+                client.indices().refresh(r -> r.index(indexName));
+            } catch (IOException e) {
+                log.warn("KnowledgeGraphBulkIngester#refresh error.", e);
+            }
+        }
+    }
+
+    /**
+     * 关闭索引的refresh，已被其他会话关闭时只增加计数；关闭失败返回false
+     */
+    private synchronized boolean disableRefresh(String indexName) {
+        RefreshHold hold = refreshHolds.get(indexName);
+        if (hold != null) {
+            hold.sessions++;
+            return true;
+        }
+        try {
+            String original = null;
+            GetIndicesSettingsResponse settings = client.indices().getSettings(g -> g.index(indexName));
+            for (IndexState state : settings.result().values()) {
+                if (state.settings() != null && state.settings().index() != null
+                        && state.settings().index().refreshInterval() != null) {
+                    original = state.settings().index().refreshInterval().time();
+                }
+            }
+            refreshHolds.put(indexName, new RefreshHold(original));
+            client.indices().putSettings(p -> p
+                    .index(indexName)
+                    .settings(s -> s.refreshInterval(Time.of(t -> t.time("-1")))));
+            // 放行关闭前已在等待刷新的refresh=wait_for写入
+            client.indices().refresh(r -> r.index(indexName));
+            return true;
+        } catch (IOException e) {
+            log.warn("KnowledgeGraphBulkIngester#disableRefresh error.", e);
+            refreshHolds.remove(indexName);
+            return false;
+        }
+    }
+
+    /**
+     * 导入会话是否关闭了索引的refresh，此时refresh=wait_for的写入会一直阻塞
+     */
+    public synchronized boolean isRefreshDisabled(String indexName) {
+        return refreshHolds.containsKey(indexName);
+    }
+
+    /**
+     * 最后一个会话结束时恢复原值；原来未设置时置为null，回到ES默认
+     */
+    private synchronized void releaseRefresh(String indexName) {
+        RefreshHold hold = refreshHolds.get(indexName);
+        if (hold == null || --hold.sessions > 0) {
+            return;
+        }
+        refreshHolds.remove(indexName);
+        String value = hold.original == null ? "null" : "\"" + hold.original + "\"";
+        Request request = new Request("PUT", "/" + indexName + "/_settings");
+        request.setJsonEntity("{\"index\":{\"refresh_interval\":" + value + "}}");
+        try {
+            restClient.performRequest(request);
+        } catch (IOException e) {
+            log.error("KnowledgeGraphBulkIngester#restoreRefresh error, refreshInterval={}.", hold.original, e);
+        }
+    }
+
+    /**
+     * 粗略估算文档序列化后的字节数，仅用于攒批上限判断
+     */
+    static long estimateBytes(KnowledgeGraphMarkResultEntity entity) {
+        long bytes = 256;
+        bytes += length(entity.getResourceId()) + length(entity.getResourceType())
+                + length(entity.getResourceSubtype()) + length(entity.getCourseDocId());
+        bytes += length(entity.getTagIdList()) + length(entity.getSectionTagIds()) + length(entity.getGradeTagIds());
+        return bytes;
+    }
+
+    private static long length(String value) {
+        return value == null ? 0 : value.length() + 3;
+    }
+
+    private static long length(List<String> values) {
+        if (values == null) {
+            return 0;
+        }
+        long bytes = 2;
+        for (String value : values) {
+            bytes += length(value);
+        }
+        return bytes;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class RefreshHold {
+        /**
+         * 关闭前的refresh_interval，未设置时为null
+         */
+        final String original;
+        int sessions = 1;
+
+        RefreshHold(String original) {
+            this.original = original;
+        }
+    }
+}
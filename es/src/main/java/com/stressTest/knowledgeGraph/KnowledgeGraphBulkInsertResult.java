@@ -0,0 +1,36 @@
+package com.stressTest.knowledgeGraph;
+
+import lombok.Data;
+
+/**
+ * 批量导入结果统计
+ */
+@Data
+public class KnowledgeGraphBulkInsertResult {
+    /**
+     * 提交的文档总数
+     */
+    private long total;
+    /**
+     * 写入成功数
+     */
+    private long succeeded;
+    /**
+     * 重试耗尽后仍失败的文档数
+     */
+    private long failed;
+    /**
+     * 被ES拒绝（429）的次数，含重试后成功的
+     */
+    private long rejected;
+    /**
+     * 重试的文档次数
+     */
+    private long retried;
+    /**
+     * 发出的bulk请求数
+     */
+    private long bulkRequests;
+    private long durationMs;
+    private double docsPerSecond;
+}
@@ -0,0 +1,19 @@
+package com.stressTest.knowledgeGraph;
+
+import lombok.Data;
+
+/**
+ * 一条文档变更：ES文档ID及其最新内容
+ */
+@Data
+public class KnowledgeGraphChangeEvent {
+
+    private String id;
+
+    private KnowledgeGraphMarkResultEntity entity;
+
+    public KnowledgeGraphChangeEvent(String id, KnowledgeGraphMarkResultEntity entity) {
+        this.id = id;
+        this.entity = entity;
+    }
+}
@@ -0,0 +1,244 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 增量变更流：按updateTime水位线在PIT上search_after轮询索引，分批投递给各KnowledgeGraphChangeListener。
+ * 水位线每轮结束后写入本地checkpoint文件，重启后从该处继续；ES中删除的文档不会产生事件。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphChangeFeed {
+
+    @Resource
+    private ElasticsearchClient client;
+    @Resource
+    private List<KnowledgeGraphChangeListener> listeners;
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Value("${stressTest.changeFeed.enabled:false}")
+    private boolean enabled;
+    @Value("${stressTest.changeFeed.intervalSeconds:10}")
+    private long intervalSeconds;
+    @Value("${stressTest.changeFeed.batchSize:5000}")
+    private int batchSize;
+    /**
+     * 每轮从水位线向前回溯的时间，覆盖刷新延迟期间写入、尚不可见的文档
+     */
+    @Value("${stressTest.changeFeed.overlapMs:5000}")
+    private long overlapMs;
+    /**
+     * checkpoint文件，为空时不持久化
+     */
+    @Value("${stressTest.changeFeed.checkpointFile:kg-change-feed.checkpoint}")
+    private String checkpointFile;
+    @Value("${stressTest.query.pitKeepAlive:1m}")
+    private String pitKeepAlive;
+
+    /**
+     * 已投递文档的最大updateTime，-1表示尚未拉取过
+     */
+    private volatile long watermark = -1;
+    private volatile long lastPollTime;
+    /**
+     * 最近一次成功拉取时的延迟：开始拉取时间 - 本轮推进后的水位线；没有新文档（已追平）时为0
+     */
+    private volatile long lagMillis;
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled && listeners.stream().noneMatch(KnowledgeGraphChangeListener::requiresFeed)) {
+            return;
+        }
+        if (listeners.stream().anyMatch(KnowledgeGraphChangeListener::requiresFullLoad)) {
+            log.info("KnowledgeGraphChangeFeed starts with a full load.");
+        } else {
+            watermark = readCheckpoint();
+        }
+        Gauge.builder("kg.change.feed.lag", this, feed -> feed.lagMillis / 1000.0)
+                .description("poll start - watermark at the last poll that delivered new documents, 0 when caught up")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("kg.change.feed.poll.age", this, feed -> feed.lastPollTime == 0 ? 0
+                        : (System.currentTimeMillis() - feed.lastPollTime) / 1000.0)
+                .description("time since the last successful poll")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("kg-change-feed").setDaemon(true).build());
+        scheduler.scheduleWithFixedDelay(this::poll, 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void poll() {
+        try {
+            long start = System.currentTimeMillis();
+            long watermarkBefore = watermark;
+            int delivered = pull();
+            for (KnowledgeGraphChangeListener listener : listeners) {
+                listener.onPollComplete();
+            }
+            writeCheckpoint(watermark);
+            // 回溯窗口内重复投递的文档不推进水位线；没有写入时now - watermark会一直增长，不代表落后
+            lagMillis = watermark > watermarkBefore && watermarkBefore >= 0 ? Math.max(0, start - watermark) : 0;
+            lastPollTime = start;
+            polls.incrementAndGet();
+            if (delivered > 0) {
+                log.info("KnowledgeGraphChangeFeed#poll events={}, watermark={}, costMs={}.",
+                        delivered, watermark, System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            log.error("KnowledgeGraphChangeFeed#poll error.", e);
+        }
+    }
+
+    /**
+     * 拉取updateTime不早于(水位线 - 回溯)的文档并投递，返回事件数
+     */
+    private int pull() throws IOException {
+        long from = watermark < 0 ? -1 : Math.max(0, watermark - overlapMs);
+        String pitId = client.openPointInTime(p -> p
+                .index(KnowledgeGraphService.index_name)
+                .keepAlive(t -> t.time(pitKeepAlive))).id();
+        int delivered = 0;
+        try {
+            List<FieldValue> searchAfter = null;
+            while (true) {
+                SearchRequest.Builder builder = new SearchRequest.Builder();
+                builder.pit(p -> p.id(pitId).keepAlive(t -> t.time(pitKeepAlive)))
+                        .sort(KnowledgeGraphService.sortBy("updateTime"))
+                        .sort(KnowledgeGraphService.sortBy("_shard_doc"))
+                        .size(batchSize)
+                        .trackTotalHits(t -> t.enabled(false));
+                if (from >= 0) {
+                    builder.query(q -> q.range(r -> r.field("updateTime").gte(JsonData.of(from))));
+                }
+                if (searchAfter != null) {
+                    builder.searchAfter(searchAfter);
+                }
+                SearchResponse<KnowledgeGraphMarkResultEntity> esResponse =
+                        client.search(builder.build(), KnowledgeGraphMarkResultEntity.class);
+                List<Hit<KnowledgeGraphMarkResultEntity>> hits = esResponse.hits().hits();
+                List<KnowledgeGraphChangeEvent> batch = new ArrayList<>(hits.size());
+                long batchWatermark = watermark;
+                for (Hit<KnowledgeGraphMarkResultEntity> hit : hits) {
+                    if (hit.source() != null) {
+                        batch.add(new KnowledgeGraphChangeEvent(hit.id(), hit.source()));
+                        batchWatermark = Math.max(batchWatermark, hit.source().getUpdateTime());
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    deliver(batch);
+                    delivered += batch.size();
+                    // 批次按updateTime升序，投递成功后即可推进
+                    watermark = batchWatermark;
+                }
+                if (hits.size() < batchSize) {
+                    break;
+                }
+                searchAfter = hits.get(hits.size() - 1).sort();
+            }
+        } finally {
+            try {
+                client.closePointInTime(c -> c.id(pitId));
+            } catch (IOException e) {
+                log.warn("KnowledgeGraphChangeFeed#closePointInTime error.", e);
+            }
+        }
+        if (watermark < 0) {
+            watermark = 0;
+        }
+        return delivered;
+    }
+
+    private void deliver(List<KnowledgeGraphChangeEvent> batch) {
+        for (KnowledgeGraphChangeListener listener : listeners) {
+            try {
+                listener.onChanges(batch);
+            } catch (RuntimeException e) {
+                log.error("KnowledgeGraphChangeFeed#deliver error, listener={}.", listener.getClass().getSimpleName(), e);
+            }
+        }
+        events.addAndGet(batch.size());
+    }
+
+    private long readCheckpoint() {
+        if (!StringUtils.hasText(checkpointFile) || !Files.exists(Paths.get(checkpointFile))) {
+            return -1;
+        }
+        try {
+            long value = Long.parseLong(new String(Files.readAllBytes(Paths.get(checkpointFile)), StandardCharsets.UTF_8).trim());
+            log.info("KnowledgeGraphChangeFeed resumes from checkpoint {}.", value);
+            return value;
+        } catch (IOException | NumberFormatException e) {
+            log.warn("KnowledgeGraphChangeFeed#readCheckpoint error, starting with a full load.", e);
+            return -1;
+        }
+    }
+
+    // 先写临时文件再替换，避免进程中断留下半个文件
+    private void writeCheckpoint(long value) throws IOException {
+        if (!StringUtils.hasText(checkpointFile) || value < 0) {
+            return;
+        }
+        Path path = Paths.get(checkpointFile).toAbsolutePath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", scheduler != null);
+        result.put("watermark", watermark);
+        result.put("lagMs", lagMillis);
+        result.put("lastPollTime", lastPollTime);
+        result.put("polls", polls.get());
+        result.put("events", events.get());
+        result.put("errors", errors.get());
+        return result;
+    }
+}
@@ -0,0 +1,35 @@
+package com.stressTest.knowledgeGraph;
+
+import java.util.List;
+
+/**
+ * 变更订阅者，注册为Spring bean即可。
+ * 回溯窗口内的文档可能被重复投递，实现需要幂等。
+ */
+public interface KnowledgeGraphChangeListener {
+
+    /**
+     * 一批变更，按updateTime升序
+     */
+    void onChanges(List<KnowledgeGraphChangeEvent> events);
+
+    /**
+     * 一轮拉取结束，本轮没有变更时也会调用
+     */
+    default void onPollComplete() {
+    }
+
+    /**
+     * 需要变更流运行；没有订阅者需要且未显式开启时不轮询ES
+     */
+    default boolean requiresFeed() {
+        return false;
+    }
+
+    /**
+     * 内存型订阅者启动时需要从头全量拉取，而不是从持久化的checkpoint继续
+     */
+    default boolean requiresFullLoad() {
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package com.stressTest.knowledgeGraph;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 全量导出request，按tagIdList/resourceSubtypeList过滤，忽略分页参数
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class KnowledgeGraphExportRequest extends KnowledgeGraphQueryRequest {
+    /**
+     * 并行切片数，每个切片一个线程
+     */
+    private int slices = 4;
+    /**
+     * 每个切片单次search_after拉取的条数
+     */
+    private int batchSize = 1000;
+}
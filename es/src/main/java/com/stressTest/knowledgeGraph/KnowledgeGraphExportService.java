@@ -0,0 +1,196 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 全量导出：同一个PIT上按slice并行search_after扫描，逐批编码为NDJSON写入响应流。
+ * 切片线程与写出线程之间用有界队列衔接，内存占用与结果集大小无关。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphExportService {
+
+    /**
+     * 写出线程结束标记
+     */
+    private static final byte[] END = new byte[0];
+
+    @Resource
+    ElasticsearchClient client;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Value("${stressTest.export.maxSlices:16}")
+    private int maxSlices;
+
+    @Value("${stressTest.query.pitKeepAlive:1m}")
+    private String pitKeepAlive;
+
+    /**
+     * 导出全部匹配文档到out，每行一个KnowledgeGraphMarkResultResponse
+     *
+     * @return 导出的文档数
+     */
+    public long export(KnowledgeGraphExportRequest request, OutputStream out) throws IOException {
+        int slices = Math.max(1, Math.min(request.getSlices(), maxSlices));
+        OpenPointInTimeResponse pit = client.openPointInTime(p -> p
+                .index(KnowledgeGraphService.index_name)
+                .keepAlive(t -> t.time(pitKeepAlive)));
+
+        // 每个切片最多积压2批，超出时切片线程阻塞等待写出
+        BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(slices * 2);
+        Export export = new Export(request, pit.id(), slices, queue);
+        ExecutorService executor = Executors.newFixedThreadPool(slices,
+                new ThreadFactoryBuilder().setNameFormat("kg-export-%d").setDaemon(true).build());
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < slices; i++) {
+                int sliceId = i;
+                executor.execute(() -> export.scan(sliceId));
+            }
+            int finished = 0;
+            while (finished < slices && export.failure.get() == null) {
+                byte[] chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (chunk == null) {
+                    continue;
+                }
+                if (chunk == END) {
+                    finished++;
+                    continue;
+                }
+                out.write(chunk);
+            }
+            // 有切片失败时抛出异常中断响应，不能正常结束一个不完整的流
+            if (export.failure.get() != null) {
+                throw new IOException("export failed, output is incomplete", export.failure.get());
+            }
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("export interrupted", e);
+        } finally {
+            // 客户端断开等异常时通知切片线程退出
+            export.cancelled = true;
+            executor.shutdownNow();
+            closePointInTime(pit.id());
+        }
+        log.info("KnowledgeGraphExportService#export docs={}, slices={}, cost={}ms.",
+                export.count.get(), slices, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return export.count.get();
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            client.closePointInTime(c -> c.id(pitId));
+        } catch (IOException e) {
+            log.warn("KnowledgeGraphExportService#closePointInTime error.", e);
+        }
+    }
+
+    private class Export {
+        private final KnowledgeGraphExportRequest request;
+        private final String pitId;
+        private final int slices;
+        private final BlockingQueue<byte[]> queue;
+        private volatile boolean cancelled;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicLong count = new AtomicLong();
+
+        Export(KnowledgeGraphExportRequest request, String pitId, int slices, BlockingQueue<byte[]> queue) {
+            this.request = request;
+            this.pitId = pitId;
+            this.slices = slices;
+            this.queue = queue;
+        }
+
+        void scan(int sliceId) {
+            try {
+                List<FieldValue> searchAfter = null;
+                while (!cancelled) {
+                    SearchRequest.Builder builder = new SearchRequest.Builder();
+                    builder.pit(p -> p.id(pitId).keepAlive(t -> t.time(pitKeepAlive)))
+                            .query(KnowledgeGraphService.buildQuery(request))
+                            .source(KnowledgeGraphService.responseSource())
+                            .sort(KnowledgeGraphService.sortBy("_shard_doc"))
+                            .size(request.getBatchSize())
+                            .trackTotalHits(t -> t.enabled(false));
+                    if (slices > 1) {
+                        builder.slice(s -> s.id(String.valueOf(sliceId)).max(slices));
+                    }
+                    if (searchAfter != null) {
+                        builder.searchAfter(searchAfter);
+                    }
+                    SearchResponse<KnowledgeGraphMarkResultResponse> esResponse =
+                            client.search(builder.build(), KnowledgeGraphMarkResultResponse.class);
+                    List<Hit<KnowledgeGraphMarkResultResponse>> hits = esResponse.hits().hits();
+                    if (hits.isEmpty()) {
+                        break;
+                    }
+                    queue.put(encode(hits));
+                    if (hits.size() < request.getBatchSize()) {
+                        break;
+                    }
+                    searchAfter = hits.get(hits.size() - 1).sort();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("KnowledgeGraphExportService#scan error, slice={}.", sliceId, e);
+                // 记录第一个失败并通知其他切片退出
+                failure.compareAndSet(null, e);
+                cancelled = true;
+            } finally {
+                finish();
+            }
+        }
+
+        private void finish() {
+            try {
+                while (!cancelled && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                    // 队列满时等待写出线程消费
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private byte[] encode(List<Hit<KnowledgeGraphMarkResultResponse>> hits) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(hits.size() * 512);
+            int encoded = 0;
+            for (Hit<KnowledgeGraphMarkResultResponse> hit : hits) {
+                if (hit.source() == null) {
+                    continue;
+                }
+                objectMapper.writeValue(buffer, hit.source());
+                buffer.write('\n');
+                encoded++;
+            }
+            count.addAndGet(encoded);
+            return buffer.toByteArray();
+        }
+    }
+}
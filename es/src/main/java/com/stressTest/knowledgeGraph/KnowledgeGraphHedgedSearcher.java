@@ -0,0 +1,205 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.transport.TransportOptions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 对冲请求：_search超过近期往返的p95仍未返回时，换一个preference（通常落到另一个分片副本）再发一次，取先返回的结果。
+ * 每个请求向预算存入budgetPercent%个令牌，对冲消耗一个，额外请求量不超过budgetPercent%。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphHedgedSearcher {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    /**
+     * 区间样本数不足时沿用上一次的对冲延迟
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    @Resource
+    private ElasticsearchAsyncClient asyncClient;
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Value("${stressTest.hedge.enabled:false}")
+    private boolean enabled;
+    @Value("${stressTest.hedge.percentile:95}")
+    private double percentile;
+    @Value("${stressTest.hedge.budgetPercent:5}")
+    private double budgetPercent;
+    /**
+     * 令牌上限，限制低流量后的突发对冲
+     */
+    @Value("${stressTest.hedge.maxTokens:10}")
+    private double maxTokens;
+    @Value("${stressTest.hedge.initialDelayMs:50}")
+    private long initialDelayMs;
+    @Value("${stressTest.hedge.minDelayMs:2}")
+    private long minDelayMs;
+
+    private final Recorder roundtrip = new Recorder(HIGHEST_TRACKABLE_MICROS, 2);
+    private volatile long delayNanos;
+    private double tokens;
+
+    private ScheduledExecutorService scheduler;
+    private Counter requests;
+    private Counter hedged;
+    private Counter won;
+    private Counter overBudget;
+
+    @PostConstruct
+    public void init() {
+        delayNanos = TimeUnit.MILLISECONDS.toNanos(initialDelayMs);
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("kg-hedge").setDaemon(true).build());
+        scheduler.scheduleAtFixedRate(this::updateDelay, 1, 1, TimeUnit.SECONDS);
+        requests = Counter.builder("kg.hedge.requests").register(meterRegistry);
+        hedged = Counter.builder("kg.hedge.sent").register(meterRegistry);
+        won = Counter.builder("kg.hedge.won").register(meterRegistry);
+        overBudget = Counter.builder("kg.hedge.over.budget").register(meterRegistry);
+        Gauge.builder("kg.hedge.delay", this, h -> h.delayNanos / 1e9).baseUnit("seconds").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param requestFactory 按preference构造请求，首个请求preference为null
+     * @param options        单次请求的传输选项，为空时使用默认
+     */
+    public <T> CompletableFuture<SearchResponse<T>> searchAsync(Function<String, SearchRequest> requestFactory, Class<T> clazz,
+                                                                 TransportOptions options) {
+        ElasticsearchAsyncClient target = options == null ? asyncClient : asyncClient.withTransportOptions(options);
+        requests.increment();
+        deposit();
+        CompletableFuture<SearchResponse<T>> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        long startNanos = System.nanoTime();
+        CompletableFuture<SearchResponse<T>> primary = send(target, requestFactory.apply(null), clazz);
+        primary.whenComplete((response, e) -> {
+            // 对冲胜出后首个请求被取消，此时的耗时是其往返时间的下限；不记录会只剩快的样本，p95被低估
+            if (e == null || e instanceof CancellationException) {
+                roundtrip.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (System.nanoTime() - startNanos) / 1000));
+            }
+            settle(result, pending, response, e, false);
+        });
+        ScheduledFuture<?> timer = scheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (!withdraw()) {
+                overBudget.increment();
+                return;
+            }
+            pending.incrementAndGet();
+            hedged.increment();
+            String preference = "hedge-" + ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+            CompletableFuture<SearchResponse<T>> hedge = send(target, requestFactory.apply(preference), clazz);
+            hedge.whenComplete((response, e) -> settle(result, pending, response, e, true));
+            result.whenComplete((response, e) -> hedge.cancel(false));
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        result.whenComplete((response, e) -> {
+            timer.cancel(false);
+            primary.cancel(false);
+        });
+        return result;
+    }
+
+    public <T> SearchResponse<T> search(Function<String, SearchRequest> requestFactory, Class<T> clazz,
+                                        TransportOptions options) throws IOException {
+        try {
+            return searchAsync(requestFactory, clazz, options).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for search", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static <T> CompletableFuture<SearchResponse<T>> send(ElasticsearchAsyncClient target, SearchRequest request, Class<T> clazz) {
+        try {
+            return target.search(request, clazz);
+        } catch (RuntimeException e) {
+            CompletableFuture<SearchResponse<T>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * 先成功的结果胜出；全部失败时返回最后一个异常
+     */
+    private <T> void settle(CompletableFuture<SearchResponse<T>> result, AtomicInteger pending,
+                            SearchResponse<T> response, Throwable e, boolean hedge) {
+        if (e == null) {
+            if (result.complete(response) && hedge) {
+                won.increment();
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + budgetPercent / 100);
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    private void updateDelay() {
+        Histogram interval = roundtrip.getIntervalHistogram();
+        if (interval.getTotalCount() < MIN_SAMPLES) {
+            return;
+        }
+        long micros = interval.getValueAtPercentile(percentile);
+        delayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(minDelayMs), TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+}
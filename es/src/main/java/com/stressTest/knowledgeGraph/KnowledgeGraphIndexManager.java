@@ -0,0 +1,393 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.OpType;
+import co.elastic.clients.elasticsearch._types.Script;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch._types.mapping.DynamicMapping;
+import co.elastic.clients.elasticsearch._types.mapping.Property;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.core.ReindexResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.SegmentSortOrder;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.elasticsearch.tasks.TaskStatus;
+import co.elastic.clients.json.JsonData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 索引生命周期：查询与写入都通过别名knowledge_graph_recommend_index，实际数据在带版本号的索引中。
+ * 新建索引时指定mapping与settings；重建时先建新索引、reindex、核对文档数，再原子切换别名（蓝绿切换），旧索引保留用于回滚。
+ * <p>
+ * mapping变体：
+ * optimized：keyword字段、标签与子类型eager_global_ordinals、按sort做index sorting、排查用字段不进_source；
+ * plain：与optimized相同的字段类型，不做上述优化；
+ * dynamic：不指定mapping，由ES自动推断（与未经管理的旧索引一致）。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphIndexManager {
+
+    public static final String OPTIMIZED = "optimized";
+    public static final String PLAIN = "plain";
+    public static final String DYNAMIC = "dynamic";
+
+    static final String ALIAS = KnowledgeGraphService.index_name;
+
+    private static final long TASK_POLL_INTERVAL_MS = 1000;
+
+    /**
+     * 只用于排查问题的字段，optimized中不进_source，仍保留doc_values
+     */
+    private static final List<String> SOURCE_EXCLUDES = Arrays.asList("courseDocId", "createAtTime", "updateAtTime");
+
+    @Resource
+    private ElasticsearchClient client;
+    @Resource
+    private KnowledgeGraphRoutingStrategy routingStrategy;
+    @Resource
+    private KnowledgeGraphWriteBuffer writeBuffer;
+    @Resource
+    private KnowledgeGraphBulkIngester bulkIngester;
+
+    /**
+     * 数据量在千万级以内时单分片即可，避免查询扇出到多个分片
+     */
+    @Value("${stressTest.index.shards:1}")
+    private int shards;
+    @Value("${stressTest.index.replicas:1}")
+    private int replicas;
+    @Value("${stressTest.index.refreshInterval:1s}")
+    private String refreshInterval;
+    /**
+     * 启动时别名和同名索引都不存在则按optimized新建
+     */
+    @Value("${stressTest.index.bootstrap:false}")
+    private boolean bootstrap;
+    @Value("${stressTest.index.reindexTimeoutMinutes:60}")
+    private long reindexTimeoutMinutes;
+
+    @PostConstruct
+    public void init() {
+        if (!bootstrap) {
+            return;
+        }
+        try {
+            if (!client.indices().exists(e -> e.index(ALIAS)).value()) {
+                String index = create(OPTIMIZED, replicas, refreshInterval);
+                switchAlias(index, false);
+                log.info("KnowledgeGraphIndexManager#init created index={} behind alias={}.", index, ALIAS);
+            }
+        } catch (Exception e) {
+            log.error("KnowledgeGraphIndexManager#init error.", e);
+        }
+    }
+
+    /**
+     * 新建一个带版本号的空索引，不切换别名
+     */
+    public String create(String variant) throws IOException {
+        checkVariant(variant);
+        return create(variant, replicas, refreshInterval);
+    }
+
+    private static void checkVariant(String variant) {
+        if (!OPTIMIZED.equals(variant) && !PLAIN.equals(variant) && !DYNAMIC.equals(variant)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown variant " + variant
+                    + ", expected one of " + Arrays.asList(OPTIMIZED, PLAIN, DYNAMIC));
+        }
+    }
+
+    private String create(String variant, int replicaCount, String refresh) throws IOException {
+        String index = ALIAS + "_v" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()) + "_" + variant;
+        IndexSettings settings = settings(variant, shards, replicaCount, refresh);
+        TypeMapping variantMapping = mapping(variant);
+        // 记录路由规则，写入前据此核对
+        Map<String, JsonData> meta = routingStrategy.meta();
+        TypeMapping mapping = meta.isEmpty() || variantMapping == null
+                ? (meta.isEmpty() ? variantMapping : TypeMapping.of(m -> m.meta(meta)))
+                : TypeMapping.of(m -> m
+                        .dynamic(variantMapping.dynamic())
+                        .properties(variantMapping.properties())
+                        .source(variantMapping.source())
+                        .meta(meta));
+        client.indices().create(c -> {
+            c.index(index).settings(settings);
+            if (mapping != null) {
+                c.mappings(mapping);
+            }
+            return c;
+        });
+        return index;
+    }
+
+    /**
+     * 蓝绿重建：按variant新建索引并从别名当前指向的数据reindex，文档数一致且switchAlias时切换别名。
+     * 复制期间/insert的写入同时镜像到新索引；reindex以op_type=create复制，不覆盖镜像写入的较新版本。
+     * 复制期间不允许批量导入；其他进程直接写入ES的数据不会被镜像。
+     * reindex读取_source，别名指向optimized索引时不在_source中的字段会丢失，需要allowFieldLoss=true才执行。
+     * 开启routing时按同样规则重新设置每个文档的routing。
+     */
+    public Map<String, Object> reindex(String variant, boolean switchAlias, boolean allowFieldLoss) throws IOException {
+        checkVariant(variant);
+        long startNanos = System.nanoTime();
+        List<String> sources = currentIndices();
+        boolean lossy = sources.stream().anyMatch(index -> index.endsWith("_" + OPTIMIZED));
+        if (lossy && !allowFieldLoss) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "source index " + sources + " is optimized, "
+                    + SOURCE_EXCLUDES + " are not in _source and would be lost; pass allowFieldLoss=true to proceed");
+        }
+        if (lossy) {
+            log.warn("KnowledgeGraphIndexManager#reindex from optimized index {}, fields {} will be lost.", sources, SOURCE_EXCLUDES);
+        }
+        if (!bulkIngester.beginExclusive()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "bulk ingestion in progress");
+        }
+        try {
+            return copy(variant, switchAlias, sources, lossy, startNanos);
+        } finally {
+            writeBuffer.stopMirror();
+            bulkIngester.endExclusive();
+        }
+    }
+
+    private Map<String, Object> copy(String variant, boolean switchAlias, List<String> sources, boolean lossy,
+                                     long startNanos) throws IOException {
+        // 复制期间不刷新、不写副本，完成后恢复
+        String target = create(variant, 0, "-1");
+        Script routingScript = routingStrategy.reindexScript();
+        try {
+            writeBuffer.startMirror(target);
+            // 镜像开始前已完成的写入需要在reindex的快照中可见
+            client.indices().refresh(r -> r.index(ALIAS));
+            ReindexResponse started = client.reindex(r -> r
+                    .source(s -> s.index(ALIAS))
+                    .dest(d -> d.index(target).opType(OpType.Create))
+                    .conflicts(Conflicts.Proceed)
+                    .script(routingScript)
+                    .slices(s -> s.computed(SlicesCalculation.Auto))
+                    .waitForCompletion(false));
+            awaitTask(started.task());
+            client.indices().putSettings(p -> p
+                    .index(target)
+                    .settings(s -> s
+                            .numberOfReplicas(String.valueOf(replicas))
+                            .refreshInterval(Time.of(t -> t.time(refreshInterval)))));
+        } catch (IOException | RuntimeException e) {
+            // 复制失败或超时：目标索引不完整且关闭了刷新和副本，删除
+            writeBuffer.stopMirror();
+            deleteQuietly(target);
+            throw e;
+        }
+        client.indices().refresh(r -> r.index(ALIAS, target));
+
+        long sourceDocs = client.count(c -> c.index(ALIAS)).count();
+        long targetDocs = client.count(c -> c.index(target)).count();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("variant", variant);
+        result.put("routing", routingScript != null);
+        result.put("source", sources);
+        result.put("target", target);
+        result.put("sourceDocs", sourceDocs);
+        result.put("targetDocs", targetDocs);
+        result.put("fieldsLost", lossy ? SOURCE_EXCLUDES : Collections.emptyList());
+        boolean switched = false;
+        if (switchAlias) {
+            long mirrorFailures = writeBuffer.mirrorFailures();
+            if (targetDocs < sourceDocs) {
+                log.warn("KnowledgeGraphIndexManager#reindex doc count mismatch, keep alias. source={}, target={}.", sourceDocs, targetDocs);
+            } else if (mirrorFailures > 0) {
+                log.warn("KnowledgeGraphIndexManager#reindex {} writes were not mirrored to {}, keep alias.", mirrorFailures, target);
+            } else {
+                // 切换后写入经别名进入新索引，镜像到切换完成为止；文档数已核对，可以删除未经管理的旧索引
+                switchAlias(target, true);
+                switched = true;
+            }
+            result.put("mirrorFailures", mirrorFailures);
+        }
+        result.put("aliasSwitched", switched);
+        result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        log.info("KnowledgeGraphIndexManager#reindex result={}.", result);
+        return result;
+    }
+
+    /**
+     * 原子地把别名切换到index，旧版本索引保留。
+     * 别名同名的旧索引（未经管理）必须删除才能建立别名，它没有可回滚的副本：
+     * 只有index的文档数不少于它，或dropLegacy=true时才删除，否则返回409
+     */
+    public void switchAlias(String index, boolean dropLegacy) throws IOException {
+        List<Action> actions = new ArrayList<>();
+        boolean aliasExists = client.indices().existsAlias(e -> e.name(ALIAS)).value();
+        if (aliasExists) {
+            for (String current : currentIndices()) {
+                actions.add(Action.of(a -> a.remove(r -> r.index(current).alias(ALIAS))));
+            }
+        } else if (client.indices().exists(e -> e.index(ALIAS)).value()) {
+            client.indices().refresh(r -> r.index(ALIAS, index));
+            long legacyDocs = client.count(c -> c.index(ALIAS)).count();
+            long targetDocs = client.count(c -> c.index(index)).count();
+            if (targetDocs < legacyDocs && !dropLegacy) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "switching would delete the unmanaged index " + ALIAS
+                        + " with " + legacyDocs + " docs while " + index + " has " + targetDocs
+                        + "; copy the data with /index/reindex or pass dropLegacy=true");
+            }
+            log.warn("KnowledgeGraphIndexManager#switchAlias deleting unmanaged index={}, docs={}, target docs={}.", ALIAS, legacyDocs, targetDocs);
+            actions.add(Action.of(a -> a.removeIndex(r -> r.index(ALIAS))));
+        }
+        actions.add(Action.of(a -> a.add(r -> r.index(index).alias(ALIAS))));
+        client.indices().updateAliases(u -> u.actions(actions));
+        routingStrategy.reset();
+        log.info("KnowledgeGraphIndexManager#switchAlias alias={} -> index={}.", ALIAS, index);
+    }
+
+    /**
+     * 别名当前指向的索引；别名不存在时为同名索引（如存在）
+     */
+    public List<String> currentIndices() throws IOException {
+        if (client.indices().existsAlias(e -> e.name(ALIAS)).value()) {
+            return new ArrayList<>(client.indices().getAlias(g -> g.name(ALIAS)).result().keySet());
+        }
+        List<String> result = new ArrayList<>();
+        if (client.indices().exists(e -> e.index(ALIAS)).value()) {
+            result.add(ALIAS);
+        }
+        return result;
+    }
+
+    /**
+     * 所有版本的索引及文档数
+     */
+    public Map<String, Object> stats() throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("alias", ALIAS);
+        result.put("current", currentIndices());
+        Map<String, Long> versions = new LinkedHashMap<>();
+        for (String index : client.indices().get(g -> g.index(ALIAS + "_v*")).result().keySet()) {
+            versions.put(index, client.count(c -> c.index(index)).count());
+        }
+        result.put("versions", versions);
+        result.put("routing", routingStrategy.stats());
+        return result;
+    }
+
+    /**
+     * 轮询任务直到完成；任务报错、有失败文档或超时时抛出IOException，超时时取消任务
+     */
+    private void awaitTask(String taskId) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(reindexTimeoutMinutes);
+        while (true) {
+            GetTasksResponse task = client.tasks().get(g -> g.taskId(taskId));
+            if (task.completed()) {
+                if (task.error() != null) {
+                    throw new IOException("reindex task " + taskId + " failed: " + task.error().reason());
+                }
+                TaskStatus status = task.response();
+                if (status != null && (!status.failures().isEmpty() || Boolean.TRUE.equals(status.timedOut()))) {
+                    throw new IOException("reindex task " + taskId + " has failures: " + status.failures());
+                }
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                try {
+                    client.tasks().cancel(c -> c.taskId(taskId));
+                } catch (IOException e) {
+                    log.warn("KnowledgeGraphIndexManager#awaitTask cancel error, task={}.", taskId, e);
+                }
+                throw new IOException("reindex task " + taskId + " not completed in " + reindexTimeoutMinutes + " minutes");
+            }
+            try {
+                Thread.sleep(TASK_POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for reindex task " + taskId, e);
+            }
+        }
+    }
+
+    private void deleteQuietly(String index) {
+        try {
+            client.indices().delete(d -> d.index(index));
+            log.warn("KnowledgeGraphIndexManager#reindex failed, deleted target index={}.", index);
+        } catch (IOException | RuntimeException e) {
+            log.error("KnowledgeGraphIndexManager#deleteQuietly error, index={}.", index, e);
+        }
+    }
+
+    static IndexSettings settings(String variant, int shardCount, int replicaCount, String refresh) {
+        return IndexSettings.of(s -> {
+            s.numberOfShards(String.valueOf(shardCount))
+                    .numberOfReplicas(String.valueOf(replicaCount))
+                    .refreshInterval(Time.of(t -> t.time(refresh)));
+            if (OPTIMIZED.equals(variant)) {
+                // 段内按sort预排序，按sort分页且不精确统计总数时可以提前结束
+                s.sort(o -> o.field("sort").order(SegmentSortOrder.Asc));
+            }
+            return s;
+        });
+    }
+
+    /**
+     * dynamic返回null
+     */
+    static TypeMapping mapping(String variant) {
+        if (DYNAMIC.equals(variant)) {
+            return null;
+        }
+        boolean optimized = OPTIMIZED.equals(variant);
+        return TypeMapping.of(m -> {
+            m.dynamic(DynamicMapping.False)
+                    // 查询条件：terms过滤，eager_global_ordinals在refresh时构建全局序号，避免首个查询付出代价
+                    .properties("tagIdList", filterKeyword(optimized))
+                    .properties("resourceSubtype", filterKeyword(optimized))
+                    .properties("resourceId", keyword(true))
+                    .properties("resourceType", keyword(true))
+                    // 只随结果返回，不参与查询
+                    .properties("sectionTagIds", keyword(!optimized))
+                    .properties("gradeTagIds", keyword(!optimized))
+                    // 不在_source中时靠doc_values保留
+                    .properties("courseDocId", keyword(true))
+                    // 变更流按updateTime范围查询、排序
+                    .properties("createTime", Property.of(p -> p.long_(l -> l)))
+                    .properties("updateTime", Property.of(p -> p.long_(l -> l)))
+                    .properties("createAtTime", Property.of(p -> p.long_(l -> l.index(!optimized))))
+                    .properties("updateAtTime", Property.of(p -> p.long_(l -> l.index(!optimized))))
+                    .properties("sort", Property.of(p -> p.integer(i -> i)));
+            if (optimized) {
+                m.source(s -> s.excludes(SOURCE_EXCLUDES));
+            }
+            return m;
+        });
+    }
+
+    private static Property filterKeyword(boolean eagerGlobalOrdinals) {
+        return Property.of(p -> p.keyword(k -> k.eagerGlobalOrdinals(eagerGlobalOrdinals)));
+    }
+
+    /**
+     * @param indexed false时不建倒排、不存doc_values，值只在_source中
+     */
+    private static Property keyword(boolean indexed) {
+        return Property.of(p -> p.keyword(k -> indexed ? k : k.index(false).docValues(false)));
+    }
+}
@@ -7,4 +7,50 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class KnowledgeGraphInsertRequest {
     private int count;
-}
\ No newline at end of file
+
+    /**
+     * 随机种子，相同种子生成的数据集完全一致；为空时随机
+     */
+    private Long seed;
+    /**
+     * 文档序号起点，第i条数据的resourceId为id_(startId+i)；多次导入时错开，避免覆盖之前的数据
+     */
+    private long startId;
+    /**
+     * 生成线程数，<=0时取CPU核数
+     */
+    private int generatorThreads;
+    /**
+     * 每条数据的图谱标签数
+     */
+    private int tagCount = 10;
+    /**
+     * 标签频率分布：uniform / zipf
+     */
+    private String tagDistribution = "uniform";
+    /**
+     * zipf分布指数，越大越倾斜
+     */
+    private double zipfExponent = 1.0;
+
+    /**
+     * 单个bulk请求的最大文档数
+     */
+    private int batchSize = 1000;
+    /**
+     * 单个bulk请求的最大字节数（估算值）
+     */
+    private long maxBatchBytes = 5 * 1024 * 1024;
+    /**
+     * 同时在途的bulk请求数，超出时生产方阻塞（背压）
+     */
+    private int concurrency = 4;
+    /**
+     * 被拒绝（429）或网络异常的文档最大重试次数
+     */
+    private int maxRetries = 3;
+    /**
+     * 导入期间是否关闭refresh_interval，结束后恢复并统一refresh一次
+     */
+    private boolean disableRefresh = true;
+}
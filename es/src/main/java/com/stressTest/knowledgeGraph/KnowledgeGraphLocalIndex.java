@@ -0,0 +1,387 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.stressTest.util.PageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地倒排索引：全量索引数据常驻内存，按标签、子类型建Roaring位图，文档按sort排好序编号，
+ * 查询为位图OR/AND加按序跳页，总数精确、翻页不受max_result_window限制。
+ * 数据来自KnowledgeGraphChangeFeed。快照整体重建（排序+建位图），因此不是每轮有变化都重建：
+ * 积累的变更达到rebuildThreshold，或距上次重建超过rebuildIntervalSeconds时才重建，期间查询读旧快照。
+ * 变更流看不到ES中删除的文档，每reconcileSeconds扫描一次ES的文档ID，删除本地多出的文档；
+ * 对账超过两个周期没有成功时不再提供服务，查询回到ES。
+ * stressTest.serving.mode=local时启用，首次全量加载完成前查询仍走ES。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphLocalIndex implements KnowledgeGraphChangeListener {
+
+    public static final String ES = "es";
+    public static final String LOCAL = "local";
+
+    private static final int SCAN_PAGE_SIZE = 10000;
+
+    @Resource
+    private KnowledgeGraphTotalHitsPolicy totalHitsPolicy;
+
+    @Resource
+    private ElasticsearchClient client;
+
+    @Value("${stressTest.serving.mode:es}")
+    private String servingMode;
+    /**
+     * 积累的变更文档数达到该值时立即重建
+     */
+    @Value("${stressTest.localIndex.rebuildThreshold:10000}")
+    private int rebuildThreshold;
+    /**
+     * 有变更时最长隔多久重建一次，即增量同步的最大延迟（不含变更流的轮询间隔）
+     */
+    @Value("${stressTest.localIndex.rebuildIntervalSeconds:30}")
+    private long rebuildIntervalSeconds;
+    @Value("${stressTest.localIndex.reconcileSeconds:300}")
+    private long reconcileSeconds;
+    /**
+     * 对账时updateTime晚于(扫描开始 - 该值)的文档可能还不可见，不删除
+     */
+    @Value("${stressTest.changeFeed.overlapMs:5000}")
+    private long overlapMs;
+    @Value("${stressTest.query.pitKeepAlive:1m}")
+    private String pitKeepAlive;
+
+    /**
+     * 文档ID到文档，只由变更流线程修改
+     */
+    private final Map<String, Doc> docs = new HashMap<>();
+    /**
+     * 上次重建后变化的文档数
+     */
+    private volatile int pendingChanges;
+    private volatile Snapshot snapshot;
+    private volatile long lastBuildTime;
+    private volatile long lastBuildMillis;
+    /**
+     * 最近一次成功对账（含首次全量加载）的开始时间
+     */
+    private volatile long lastReconcileTime;
+    private volatile long lastReconcileRemoved;
+
+    public boolean isEnabled() {
+        return LOCAL.equalsIgnoreCase(servingMode);
+    }
+
+    /**
+     * 已启用、完成首次加载，且最近对账过（否则可能返回ES中已删除的文档）
+     */
+    public boolean isServing() {
+        return snapshot != null
+                && System.currentTimeMillis() - lastReconcileTime <= TimeUnit.SECONDS.toMillis(reconcileSeconds) * 2;
+    }
+
+    @Override
+    public boolean requiresFeed() {
+        return isEnabled();
+    }
+
+    @Override
+    public boolean requiresFullLoad() {
+        return isEnabled();
+    }
+
+    public PageResult<KnowledgeGraphMarkResultResponse> query(KnowledgeGraphQueryRequest request) {
+        Snapshot current = snapshot;
+        RoaringBitmap matched = current.match(request);
+        PageResult<KnowledgeGraphMarkResultResponse> pageResult = new PageResult<>();
+        long total = matched.getLongCardinality();
+        // 基数是精确值，按请求的totalHits模式返回，与走ES时一致
+        totalHitsPolicy.applyExact(request, totalHitsPolicy.modeOf(request), total, pageResult);
+        long from = (long) (request.getPageNum() - 1) * request.getPageSize();
+        if (from < 0 || from >= total) {
+            return pageResult;
+        }
+        // 位图按sort顺序编号，select定位第from个命中的文档后顺序取一页
+        PeekableIntIterator iterator = matched.getIntIterator();
+        iterator.advanceIfNeeded(matched.select((int) from));
+        for (int i = 0; i < request.getPageSize() && iterator.hasNext(); i++) {
+            pageResult.getPageData().add(current.docs[iterator.next()].response);
+        }
+        return pageResult;
+    }
+
+    @Override
+    public void onChanges(List<KnowledgeGraphChangeEvent> events) {
+        if (!isEnabled()) {
+            return;
+        }
+        for (KnowledgeGraphChangeEvent event : events) {
+            Doc existing = docs.get(event.getId());
+            if (existing != null && existing.updateTime >= event.getEntity().getUpdateTime()) {
+                // 回溯窗口内重复投递的文档
+                continue;
+            }
+            docs.put(event.getId(), new Doc(event.getId(), event.getEntity()));
+            pendingChanges++;
+        }
+    }
+
+    /**
+     * 在变更流线程上调用，与onChanges互斥
+     */
+    @Override
+    public void onPollComplete() {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (snapshot == null) {
+            // 首次全量加载刚完成，视为一次对账
+            lastReconcileTime = now;
+            build();
+            return;
+        }
+        if (now - lastReconcileTime >= TimeUnit.SECONDS.toMillis(reconcileSeconds)) {
+            reconcile();
+        }
+        if (pendingChanges > 0 && (pendingChanges >= rebuildThreshold
+                || now - lastBuildTime >= TimeUnit.SECONDS.toMillis(rebuildIntervalSeconds))) {
+            build();
+        }
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        snapshot = Snapshot.build(docs.values());
+        int changes = pendingChanges;
+        pendingChanges = 0;
+        lastBuildTime = start;
+        lastBuildMillis = System.currentTimeMillis() - start;
+        log.info("KnowledgeGraphLocalIndex#build docs={}, changes={}, costMs={}.", docs.size(), changes, lastBuildMillis);
+    }
+
+    /**
+     * 扫描ES中的全部文档ID，删除本地有而ES中已不存在的文档；失败时保留原状态，下一轮重试
+     */
+    private void reconcile() {
+        long start = System.currentTimeMillis();
+        Set<String> ids;
+        try {
+            ids = scanIds();
+        } catch (IOException | RuntimeException e) {
+            log.error("KnowledgeGraphLocalIndex#reconcile error.", e);
+            return;
+        }
+        long removed = 0;
+        Iterator<Doc> iterator = docs.values().iterator();
+        while (iterator.hasNext()) {
+            Doc doc = iterator.next();
+            if (!ids.contains(doc.id) && doc.updateTime < start - overlapMs) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        // 删除不计入阈值，下面立即重建
+        if (removed > 0) {
+            pendingChanges = Math.max(pendingChanges, rebuildThreshold);
+        }
+        lastReconcileTime = start;
+        lastReconcileRemoved = removed;
+        log.info("KnowledgeGraphLocalIndex#reconcile esDocs={}, removed={}, costMs={}.", ids.size(), removed, System.currentTimeMillis() - start);
+    }
+
+    private Set<String> scanIds() throws IOException {
+        Set<String> ids = new HashSet<>(docs.size() * 2);
+        String pitId = client.openPointInTime(p -> p
+                .index(KnowledgeGraphService.index_name)
+                .keepAlive(t -> t.time(pitKeepAlive))).id();
+        try {
+            List<FieldValue> searchAfter = null;
+            while (true) {
+                SearchRequest.Builder builder = new SearchRequest.Builder()
+                        .pit(p -> p.id(pitId).keepAlive(t -> t.time(pitKeepAlive)))
+                        .sort(KnowledgeGraphService.sortBy("_shard_doc"))
+                        .source(s -> s.fetch(false))
+                        .size(SCAN_PAGE_SIZE)
+                        .trackTotalHits(t -> t.enabled(false));
+                if (searchAfter != null) {
+                    builder.searchAfter(searchAfter);
+                }
+                List<Hit<Void>> hits = client.search(builder.build(), Void.class).hits().hits();
+                for (Hit<Void> hit : hits) {
+                    ids.add(hit.id());
+                }
+                if (hits.size() < SCAN_PAGE_SIZE) {
+                    return ids;
+                }
+                searchAfter = hits.get(hits.size() - 1).sort();
+            }
+        } finally {
+            try {
+                client.closePointInTime(c -> c.id(pitId));
+            } catch (IOException e) {
+                log.warn("KnowledgeGraphLocalIndex#closePointInTime error.", e);
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Snapshot current = snapshot;
+        result.put("enabled", isEnabled());
+        result.put("serving", current != null);
+        result.put("docs", current == null ? 0 : current.docs.length);
+        result.put("tags", current == null ? 0 : current.tagCount());
+        result.put("lastBuildTime", lastBuildTime);
+        result.put("lastBuildMillis", lastBuildMillis);
+        result.put("pendingChanges", pendingChanges);
+        result.put("lastReconcileTime", lastReconcileTime);
+        result.put("lastReconcileRemoved", lastReconcileRemoved);
+        return result;
+    }
+
+    private static final class Doc {
+        final String id;
+        final int sort;
+        final long updateTime;
+        final KnowledgeGraphMarkResultResponse response;
+
+        Doc(String id, KnowledgeGraphMarkResultEntity entity) {
+            this.id = id;
+            this.sort = entity.getSort() == null ? Integer.MAX_VALUE : entity.getSort();
+            this.updateTime = entity.getUpdateTime();
+            this.response = new KnowledgeGraphMarkResultResponse();
+            response.setResourceId(entity.getResourceId());
+            response.setResourceType(entity.getResourceType());
+            response.setResourceSubtype(entity.getResourceSubtype());
+            response.setTagIdList(entity.getTagIdList());
+            response.setSectionTagIds(entity.getSectionTagIds());
+            response.setGradeTagIds(entity.getGradeTagIds());
+        }
+    }
+
+    /**
+     * 不可变的索引快照，文档编号即按(sort, id)排序后的位置
+     */
+    private static final class Snapshot {
+        private static final Comparator<Doc> ORDER = Comparator.<Doc>comparingInt(d -> d.sort).thenComparing(d -> d.id);
+
+        final Doc[] docs;
+        final RoaringBitmap all;
+        final RoaringBitmap[] tags;
+        final Map<String, RoaringBitmap> subtypes;
+
+        private Snapshot(Doc[] docs, RoaringBitmap[] tags, Map<String, RoaringBitmap> subtypes) {
+            this.docs = docs;
+            this.all = RoaringBitmap.bitmapOf();
+            all.add(0L, (long) docs.length);
+            this.tags = tags;
+            this.subtypes = subtypes;
+        }
+
+        static Snapshot build(Collection<Doc> values) {
+            Doc[] docs = values.toArray(new Doc[0]);
+            Arrays.sort(docs, ORDER);
+            RoaringBitmap[] tags = new RoaringBitmap[KnowledgeGraphTagDictionary.size()];
+            Map<String, RoaringBitmap> subtypes = new HashMap<>();
+            for (int i = 0; i < docs.length; i++) {
+                // 按编号递增写入，Roaring追加最快
+                List<String> tagIdList = docs[i].response.getTagIdList();
+                if (tagIdList instanceof KnowledgeGraphTagIdList) {
+                    KnowledgeGraphTagIdList ids = (KnowledgeGraphTagIdList) tagIdList;
+                    for (int t = 0; t < ids.size(); t++) {
+                        int tagId = ids.id(t);
+                        if (tagId >= tags.length) {
+                            tags = Arrays.copyOf(tags, Math.max(tagId + 1, tags.length * 2));
+                        }
+                        if (tags[tagId] == null) {
+                            tags[tagId] = new RoaringBitmap();
+                        }
+                        tags[tagId].add(i);
+                    }
+                }
+                String subtype = docs[i].response.getResourceSubtype();
+                if (subtype != null) {
+                    subtypes.computeIfAbsent(subtype, k -> new RoaringBitmap()).add(i);
+                }
+            }
+            for (RoaringBitmap bitmap : tags) {
+                if (bitmap != null) {
+                    bitmap.runOptimize();
+                }
+            }
+            subtypes.values().forEach(RoaringBitmap::runOptimize);
+            return new Snapshot(docs, tags, subtypes);
+        }
+
+        RoaringBitmap match(KnowledgeGraphQueryRequest request) {
+            RoaringBitmap result = all;
+            // 标签任一命中
+            if (!CollectionUtils.isEmpty(request.getTagIdList())) {
+                List<RoaringBitmap> bitmaps = new ArrayList<>(request.getTagIdList().size());
+                for (String tag : request.getTagIdList()) {
+                    int tagId = KnowledgeGraphTagDictionary.lookup(tag);
+                    if (tagId >= 0 && tagId < tags.length && tags[tagId] != null) {
+                        bitmaps.add(tags[tagId]);
+                    }
+                }
+                result = or(bitmaps);
+            }
+            // 子类型任一命中
+            if (!CollectionUtils.isEmpty(request.getResourceSubtypeList())) {
+                List<RoaringBitmap> bitmaps = new ArrayList<>(request.getResourceSubtypeList().size());
+                for (String subtype : request.getResourceSubtypeList()) {
+                    RoaringBitmap bitmap = subtypes.get(subtype);
+                    if (bitmap != null) {
+                        bitmaps.add(bitmap);
+                    }
+                }
+                result = RoaringBitmap.and(result, or(bitmaps));
+            }
+            return result;
+        }
+
+        private static RoaringBitmap or(List<RoaringBitmap> bitmaps) {
+            if (bitmaps.isEmpty()) {
+                return new RoaringBitmap();
+            }
+            if (bitmaps.size() == 1) {
+                return bitmaps.get(0);
+            }
+            return FastAggregation.or(bitmaps.iterator());
+        }
+
+        int tagCount() {
+            int count = 0;
+            for (RoaringBitmap bitmap : tags) {
+                if (bitmap != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
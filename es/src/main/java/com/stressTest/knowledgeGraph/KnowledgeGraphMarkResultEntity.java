@@ -1,5 +1,6 @@
 package com.stressTest.knowledgeGraph;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -37,15 +38,18 @@ public class KnowledgeGraphMarkResultEntity implements Serializable {
     /**
      * 图谱标签list
      */
+    @JsonDeserialize(using = KnowledgeGraphTagIdList.Deserializer.class)
     private List<String> tagIdList;
 
     /**
      * 学段
      */
+    @JsonDeserialize(using = KnowledgeGraphTagIdList.Deserializer.class)
     private List<String> sectionTagIds;
     /**
      * 年级
      */
+    @JsonDeserialize(using = KnowledgeGraphTagIdList.Deserializer.class)
     private List<String> gradeTagIds;
 
     /**
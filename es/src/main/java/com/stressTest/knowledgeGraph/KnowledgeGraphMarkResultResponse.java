@@ -1,5 +1,6 @@
 package com.stressTest.knowledgeGraph;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -23,6 +24,7 @@ public class KnowledgeGraphMarkResultResponse implements Serializable {
     /**
      * 图谱标签list
      */
+    @JsonDeserialize(using = KnowledgeGraphTagIdList.Deserializer.class)
     private List<String> tagIdList;
 
     /**
@@ -38,10 +40,12 @@ public class KnowledgeGraphMarkResultResponse implements Serializable {
     /**
      * 学段
      */
+    @JsonDeserialize(using = KnowledgeGraphTagIdList.Deserializer.class)
     private List<String> sectionTagIds;
     /**
      * 年级
      */
+    @JsonDeserialize(using = KnowledgeGraphTagIdList.Deserializer.class)
     private List<String> gradeTagIds;
 
 }
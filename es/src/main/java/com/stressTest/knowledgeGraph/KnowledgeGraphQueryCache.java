@@ -0,0 +1,185 @@
+package com.stressTest.knowledgeGraph;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.stressTest.util.PageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * queryTerms的本地结果缓存，按条目数和写入时间淘汰；
+ * 维护标签到缓存key的反向索引，写入时只失效涉及这些标签的查询。
+ * 变更流运行时，其他进程写入的文档也会按标签失效。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphQueryCache implements KnowledgeGraphChangeListener {
+
+    /**
+     * 不带标签过滤的查询，任何写入都可能影响其结果
+     */
+    private static final String ANY_TAG = "";
+
+    @Value("${stressTest.cache.enabled:true}")
+    private boolean enabled;
+    @Value("${stressTest.cache.maxSize:10000}")
+    private long maxSize;
+    @Value("${stressTest.cache.ttlSeconds:30}")
+    private long ttlSeconds;
+    /**
+     * 过期副本的保留时间：不受失效影响，只在ES过载、请求被限流时作为降级应答
+     */
+    @Value("${stressTest.cache.staleTtlSeconds:300}")
+    private long staleTtlSeconds;
+
+    private Cache<KnowledgeGraphQueryKey, PageResult<KnowledgeGraphMarkResultResponse>> cache;
+    private Cache<KnowledgeGraphQueryKey, PageResult<KnowledgeGraphMarkResultResponse>> stale;
+    private final ConcurrentHashMap<String, Set<KnowledgeGraphQueryKey>> keysByTag = new ConcurrentHashMap<>();
+
+    /**
+     * 每次失效递增，用于丢弃失效前发出、失效后才返回的查询结果
+     */
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .removalListener(this::onRemoval)
+                .build();
+        stale = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(staleTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public PageResult<KnowledgeGraphMarkResultResponse> get(KnowledgeGraphQueryKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * 降级用的过期副本，可能已被失效
+     */
+    public PageResult<KnowledgeGraphMarkResultResponse> getStale(KnowledgeGraphQueryKey key) {
+        return stale.getIfPresent(key);
+    }
+
+    /**
+     * 查询ES前获取，put时传回
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 查询期间发生过失效则不缓存，避免写入旧数据
+     */
+    public void put(KnowledgeGraphQueryKey key, PageResult<KnowledgeGraphMarkResultResponse> value, long generationBefore) {
+        stale.put(key, value);
+        if (generation.get() != generationBefore) {
+            return;
+        }
+        // 只为实际写入的条目登记反向索引（未写入的key不会触发onRemoval，登记后无人清理）；
+        // 先登记再写入，登记之后的失效由下面的复核兜底
+        for (String tag : tagsOf(key)) {
+            keysByTag.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        cache.put(key, value);
+        if (generation.get() != generationBefore) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * 失效包含任一标签的查询
+     */
+    public void invalidateTags(Collection<String> tags) {
+        generation.incrementAndGet();
+        invalidateTag(ANY_TAG);
+        if (tags != null) {
+            for (String tag : tags) {
+                invalidateTag(tag);
+            }
+        }
+    }
+
+    @Override
+    public void onChanges(List<KnowledgeGraphChangeEvent> events) {
+        if (!enabled) {
+            return;
+        }
+        Set<String> tags = new HashSet<>();
+        for (KnowledgeGraphChangeEvent event : events) {
+            if (event.getEntity().getTagIdList() != null) {
+                tags.addAll(event.getEntity().getTagIdList());
+            }
+        }
+        invalidateTags(tags);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidationCount.addAndGet(cache.size());
+        cache.invalidateAll();
+        keysByTag.clear();
+    }
+
+    private void invalidateTag(String tag) {
+        Set<KnowledgeGraphQueryKey> keys = keysByTag.remove(tag);
+        if (keys != null) {
+            invalidationCount.addAndGet(keys.size());
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private void onRemoval(RemovalNotification<KnowledgeGraphQueryKey, PageResult<KnowledgeGraphMarkResultResponse>> notification) {
+        if (notification.getCause() == RemovalCause.REPLACED) {
+            return;
+        }
+        KnowledgeGraphQueryKey key = notification.getKey();
+        for (String tag : tagsOf(key)) {
+            Set<KnowledgeGraphQueryKey> keys = keysByTag.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    private static Collection<String> tagsOf(KnowledgeGraphQueryKey key) {
+        return key.getTagIdList().isEmpty() ? Collections.singletonList(ANY_TAG) : key.getTagIdList();
+    }
+
+    public KnowledgeGraphQueryCacheStats stats() {
+        CacheStats stats = cache.stats();
+        KnowledgeGraphQueryCacheStats result = new KnowledgeGraphQueryCacheStats();
+        result.setEnabled(enabled);
+        result.setSize(cache.size());
+        result.setHitCount(stats.hitCount());
+        result.setMissCount(stats.missCount());
+        result.setHitRate(stats.hitRate());
+        result.setEvictionCount(stats.evictionCount());
+        result.setInvalidationCount(invalidationCount.get());
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.stressTest.knowledgeGraph;
+
+import lombok.Data;
+
+/**
+ * 查询缓存统计
+ */
+@Data
+public class KnowledgeGraphQueryCacheStats {
+    private boolean enabled;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    /**
+     * 因写入而失效的条目数
+     */
+    private long invalidationCount;
+}
@@ -0,0 +1,69 @@
+package com.stressTest.knowledgeGraph;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 游标分页状态：PIT id、上一页最后一条的排序值、第一页统计的总数、查询条件的摘要。
+ * 对调用方不透明，序列化为base64url；由Jackson按固定类型解析，不支持多态类型。
+ */
+@Data
+public class KnowledgeGraphQueryCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String pitId;
+    /**
+     * sort与_shard_doc均为数值字段
+     */
+    private List<Long> searchAfter;
+    private long total;
+    /**
+     * 归一化过滤条件与排序方式的摘要，换了条件的请求不能沿用该游标
+     */
+    private String filterHash;
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("KnowledgeGraphQueryCursor#encode error", e);
+        }
+    }
+
+    public static KnowledgeGraphQueryCursor decode(String cursor) {
+        try {
+            KnowledgeGraphQueryCursor result = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), KnowledgeGraphQueryCursor.class);
+            if (result == null || result.getPitId() == null || result.getFilterHash() == null) {
+                throw new IllegalArgumentException("missing pitId or filterHash");
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor", e);
+        }
+    }
+
+    public static String filterHashOf(KnowledgeGraphQueryRequest request, boolean sort) {
+        return Hashing.sha256()
+                .hashString(KnowledgeGraphQueryKey.filterOf(request) + "|sort=" + sort, StandardCharsets.UTF_8)
+                .toString();
+    }
+
+    /**
+     * 游标只能用于生成它的查询条件，否则search_after位置会被套到另一个查询上
+     */
+    public void checkFilter(KnowledgeGraphQueryRequest request, boolean sort) {
+        if (!filterHash.equals(filterHashOf(request, sort))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor does not match the query filters");
+        }
+    }
+}
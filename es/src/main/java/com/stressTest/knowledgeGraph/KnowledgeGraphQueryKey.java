@@ -0,0 +1,60 @@
+package com.stressTest.knowledgeGraph;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 归一化的查询条件：标签、子类型去重排序，语义相同的请求得到相同的key
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class KnowledgeGraphQueryKey {
+
+    private final List<String> tagIdList;
+    private final List<String> resourceSubtypeList;
+    private final int pageNum;
+    private final int pageSize;
+    private final boolean sort;
+    private final String totalHits;
+    private final Integer totalHitsCap;
+    private final String indexName;
+
+    private KnowledgeGraphQueryKey(List<String> tagIdList, List<String> resourceSubtypeList, int pageNum, int pageSize, boolean sort,
+                                   String totalHits, Integer totalHitsCap, String indexName) {
+        this.tagIdList = tagIdList;
+        this.resourceSubtypeList = resourceSubtypeList;
+        this.pageNum = pageNum;
+        this.pageSize = pageSize;
+        this.sort = sort;
+        this.totalHits = totalHits;
+        this.totalHitsCap = totalHitsCap;
+        this.indexName = indexName;
+    }
+
+    public static KnowledgeGraphQueryKey of(KnowledgeGraphTestQueryRequest request) {
+        return new KnowledgeGraphQueryKey(normalize(request.getTagIdList()), normalize(request.getResourceSubtypeList()),
+                request.getPageNum(), request.getPageSize(), request.isSort(), request.getTotalHits(), request.getTotalHitsCap(), request.getIndexName());
+    }
+
+    /**
+     * 只含过滤条件，不含分页、排序，用于缓存总数
+     */
+    public static KnowledgeGraphQueryKey filterOf(KnowledgeGraphQueryRequest request) {
+        return new KnowledgeGraphQueryKey(normalize(request.getTagIdList()), normalize(request.getResourceSubtypeList()),
+                0, 0, false, null, null, request.getIndexName());
+    }
+
+    private static List<String> normalize(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(values)));
+    }
+}
@@ -25,6 +25,31 @@ public class KnowledgeGraphQueryRequest {
      */
     private Integer pageNum = 1;
     private Integer pageSize = 100;
+    /**
+     * 游标分页：为true时忽略pageNum，返回第一页及下一页游标
+     */
+    private boolean cursorMode;
+    /**
+     * 上一页返回的游标，非空时按游标继续翻页
+     */
+    private String cursor;
+    /**
+     * 总数统计方式：exact精确、capped统计到totalHitsCap为止、estimated使用缓存的估计值、disabled不统计；
+     * 为空时取stressTest.totalHits.defaultMode
+     */
+    private String totalHits;
+    /**
+     * capped模式的统计上限，为空时取stressTest.totalHits.cap
+     */
+    private Integer totalHitsCap;
+    /**
+     * 查询的索引，为空时查询别名knowledge_graph_recommend_index；用于对比不同mapping的索引
+     */
+    private String indexName;
+    /**
+     * 查询期限（毫秒），从进入查询开始计时，传给ES的timeout和客户端socket超时；为空时取stressTest.query.timeoutMillis，0表示不限
+     */
+    private Integer timeoutMillis;
 
     public Integer getPageNum() {
         //pageNum从1开始
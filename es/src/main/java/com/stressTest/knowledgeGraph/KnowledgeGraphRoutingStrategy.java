@@ -0,0 +1,267 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Script;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
+import co.elastic.clients.json.JsonData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 按资源类型路由：写入时routing取resourceType（文档ID resourceType_resourceId的一部分，同一ID的routing不会变化），
+ * 按子类型过滤的查询把子类型映射为资源类型，只访问这些类型所在的分片，不再扇出到所有分片；
+ * 有子类型不在映射中时无法确定其资源类型，访问全部分片。
+ * 热点类型可配置分区数n，routing为type#0..n-1（按文档ID取模），数据分散到最多n个分片，查询时带上全部分区。
+ * <p>
+ * 路由规则记录在索引mapping的_meta中。规则与别名指向的索引不一致（开关、热点分区数变化，或在非空的未路由索引上开启）时，
+ * 同一ID会写到另一个分片上留下两份，因此拒绝写入，需通过/index/reindex按新规则重建。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphRoutingStrategy {
+
+    static final String PARTITION_SEPARATOR = "#";
+    static final String META_KEY = "routing";
+
+    /**
+     * reindex时为每个文档设置routing，与routingOf(entity)的规则一致（Java与painless的String.hashCode相同）
+     */
+    private static final String REINDEX_SCRIPT = "String type = ctx._source.resourceType;"
+            + " if (type != null && !type.isEmpty()) {"
+            + " def n = params.partitions.get(type);"
+            + " ctx._routing = n == null ? type : type + params.separator + Math.floorMod(ctx._id.hashCode(), n);"
+            + " }";
+
+    @Resource
+    private ElasticsearchClient client;
+
+    @Value("${stressTest.routing.enabled:false}")
+    private boolean enabled;
+    /**
+     * 热点资源类型及其分区数，如 typeA:4,typeB:2
+     */
+    @Value("${stressTest.routing.hotTypes:}")
+    private String hotTypes;
+    /**
+     * 子类型到资源类型的映射，如 subtypeA:typeA；生成的测试数据子类型与资源类型相同，需列出如 question:question
+     */
+    @Value("${stressTest.routing.subtypeTypes:}")
+    private String subtypeTypes;
+    /**
+     * 查询展开后的routing值超过该数量时不指定routing，访问全部分片
+     */
+    @Value("${stressTest.routing.maxQueryRoutings:16}")
+    private int maxQueryRoutings;
+
+    private Map<String, Integer> partitions = Collections.emptyMap();
+    private Map<String, String> typeOfSubtype = Collections.emptyMap();
+    /**
+     * 别名指向的索引与当前规则是否一致，null表示尚未核对
+     */
+    private volatile Boolean consistent;
+
+    @PostConstruct
+    public void init() {
+        partitions = parsePartitions(hotTypes);
+        typeOfSubtype = parsePairs(subtypeTypes);
+        if (enabled) {
+            log.info("KnowledgeGraphRoutingStrategy#init routing by resourceType, hotTypes={}, subtypeTypes={}.", partitions, typeOfSubtype);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 文档的routing，未开启或没有资源类型时为null（按_id路由）
+     */
+    public String routingOf(KnowledgeGraphMarkResultEntity entity) {
+        String type = entity.getResourceType();
+        if (!enabled || !StringUtils.hasText(type)) {
+            return null;
+        }
+        Integer n = partitions.get(type);
+        if (n == null) {
+            return type;
+        }
+        return type + PARTITION_SEPARATOR + Math.floorMod(KnowledgeGraphService.docId(entity).hashCode(), n);
+    }
+
+    /**
+     * 查询的routing（逗号分隔），未开启、不按子类型过滤、有未映射的子类型或展开后过多时为null
+     */
+    public String routingOf(KnowledgeGraphQueryRequest request) {
+        if (!enabled || CollectionUtils.isEmpty(request.getResourceSubtypeList())) {
+            return null;
+        }
+        Set<String> routings = new LinkedHashSet<>();
+        for (String subtype : request.getResourceSubtypeList()) {
+            if (!StringUtils.hasText(subtype)) {
+                continue;
+            }
+            String type = typeOfSubtype.get(subtype);
+            if (type == null) {
+                // 猜错类型只会访问错误的分片、静默漏掉结果
+                return null;
+            }
+            Integer n = partitions.get(type);
+            if (n == null) {
+                routings.add(type);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    routings.add(type + PARTITION_SEPARATOR + i);
+                }
+            }
+            if (routings.size() > maxQueryRoutings) {
+                return null;
+            }
+        }
+        return routings.isEmpty() ? null : String.join(",", routings);
+    }
+
+    /**
+     * 写入别名前调用：别名指向的索引按其他规则路由时拒绝写入
+     */
+    public void checkWritable() {
+        Boolean current = consistent;
+        if (current == null) {
+            current = verify();
+        }
+        if (Boolean.FALSE.equals(current)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "routing rule " + signature()
+                    + " differs from the index, rebuild it with /index/reindex before writing");
+        }
+    }
+
+    /**
+     * 别名切换或新建索引后重新核对
+     */
+    public void reset() {
+        consistent = null;
+    }
+
+    /**
+     * 核对别名指向的索引_meta中的规则；索引未记录规则时，只有空索引可以按当前规则写入（并补记规则）。
+     * 核对出错时返回null，下次写入重试
+     */
+    private synchronized Boolean verify() {
+        if (consistent != null) {
+            return consistent;
+        }
+        try {
+            String alias = KnowledgeGraphService.index_name;
+            if (!client.indices().exists(e -> e.index(alias)).value()) {
+                return null;
+            }
+            String expected = signature();
+            boolean result = true;
+            for (Map.Entry<String, IndexMappingRecord> entry : client.indices().getMapping(g -> g.index(alias)).result().entrySet()) {
+                String index = entry.getKey();
+                TypeMapping mapping = entry.getValue().mappings();
+                Map<String, JsonData> meta = mapping == null ? null : mapping.meta();
+                JsonData stored = meta == null ? null : meta.get(META_KEY);
+                if (stored != null) {
+                    // 索引按规则路由过，关闭路由后同样不能写入
+                    result &= enabled && stored.to(String.class).equals(expected);
+                } else if (enabled) {
+                    if (client.count(c -> c.index(index)).count() == 0) {
+                        client.indices().putMapping(p -> p.index(index).meta(meta()));
+                    } else {
+                        result = false;
+                    }
+                }
+            }
+            if (!result) {
+                log.error("KnowledgeGraphRoutingStrategy#verify routing rule {} differs from index {}, writes are refused.", expected, alias);
+            }
+            consistent = result;
+            return result;
+        } catch (IOException | RuntimeException e) {
+            log.warn("KnowledgeGraphRoutingStrategy#verify error.", e);
+            return null;
+        }
+    }
+
+    /**
+     * 新建索引时写入mapping的_meta，未开启时为空
+     */
+    public Map<String, JsonData> meta() {
+        if (!enabled) {
+            return Collections.emptyMap();
+        }
+        return Collections.singletonMap(META_KEY, JsonData.of(signature()));
+    }
+
+    /**
+     * 规则的文本形式，热点分区按类型排序
+     */
+    String signature() {
+        return "resourceType" + new TreeMap<>(partitions);
+    }
+
+    /**
+     * reindex时设置routing的脚本，未开启时为null
+     */
+    public Script reindexScript() {
+        if (!enabled) {
+            return null;
+        }
+        Map<String, JsonData> params = new LinkedHashMap<>();
+        params.put("partitions", JsonData.of(partitions));
+        params.put("separator", JsonData.of(PARTITION_SEPARATOR));
+        return Script.of(s -> s.inline(i -> i.source(REINDEX_SCRIPT).params(params)));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("hotTypes", partitions);
+        result.put("subtypeTypes", typeOfSubtype);
+        result.put("maxQueryRoutings", maxQueryRoutings);
+        result.put("consistentWithIndex", consistent);
+        return result;
+    }
+
+    static Map<String, Integer> parsePartitions(String value) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : parsePairs(value).entrySet()) {
+            int n = Integer.parseInt(entry.getValue());
+            if (n > 1) {
+                result.put(entry.getKey(), n);
+            }
+        }
+        return result;
+    }
+
+    static Map<String, String> parsePairs(String value) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (!StringUtils.hasText(value)) {
+            return result;
+        }
+        for (String entry : value.split(",")) {
+            String[] pair = entry.trim().split(":");
+            if (pair.length != 2 || !StringUtils.hasText(pair[0]) || !StringUtils.hasText(pair[1])) {
+                throw new IllegalArgumentException("invalid stressTest.routing entry: " + entry);
+            }
+            result.put(pair[0].trim(), pair[1].trim());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,185 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import com.stressTest.util.EsProperties;
+import com.stressTest.util.QueryStageMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 查询微批：在一个短时间窗口内（或凑满maxBatchSize）收集并发的查询，合并为一次_msearch，
+ * 再把各自的结果分给调用方。窗口从批内第一个请求入队时算起，单个请求最多多等一个窗口。
+ * 等待时间记录为kg.query.stage{op=msearch,stage=batch_wait}，批大小记录为kg.msearch.batch.size。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphSearchBatcher {
+
+    @Resource
+    private ElasticsearchAsyncClient asyncClient;
+    @Resource
+    private QueryStageMetrics stageMetrics;
+    @Resource
+    private MeterRegistry meterRegistry;
+    @Resource
+    private EsProperties esProperties;
+
+    @Value("${stressTest.msearch.enabled:false}")
+    private boolean enabled;
+    @Value("${stressTest.msearch.windowMicros:1000}")
+    private long windowMicros;
+    @Value("${stressTest.msearch.maxBatchSize:32}")
+    private int maxBatchSize;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private DistributionSummary batchSizes;
+    private Thread dispatcher;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        batchSizes = DistributionSummary.builder("kg.msearch.batch.size")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        dispatcher = new Thread(this::dispatch, "kg-msearch-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<ResponseBody<KnowledgeGraphMarkResultResponse>> searchAsync(RequestItem item) {
+        Pending pending = new Pending(item);
+        queue.add(pending);
+        return pending.future;
+    }
+
+    /**
+     * @param timeoutMillis 等待上限，不限时传Long.MAX_VALUE，此时取socket超时加一个窗口；超时后放弃该请求，未发出时不再随批发送
+     */
+    public ResponseBody<KnowledgeGraphMarkResultResponse> search(RequestItem item, long timeoutMillis) throws IOException {
+        long waitMillis = Math.min(timeoutMillis, esProperties.getSocketTimeoutMs() + TimeUnit.MICROSECONDS.toMillis(windowMicros) + 1);
+        CompletableFuture<ResponseBody<KnowledgeGraphMarkResultResponse>> future = searchAsync(item);
+        try {
+            return future.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new IOException("timed out waiting for msearch after " + waitMillis + "ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for msearch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void dispatch() {
+        long windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Pending> batch = new ArrayList<>(maxBatchSize);
+            try {
+                Pending first = queue.take();
+                batch.add(first);
+                long deadline = first.enqueuedNanos + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        // 调用方已超时放弃的请求
+        batch.removeIf(pending -> pending.future.isDone());
+        if (batch.isEmpty()) {
+            return;
+        }
+        long sentNanos = System.nanoTime();
+        List<RequestItem> items = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            stageMetrics.record(QueryStageMetrics.MSEARCH, QueryStageMetrics.BATCH_WAIT, sentNanos - pending.enqueuedNanos);
+            items.add(pending.item);
+        }
+        batchSizes.record(batch.size());
+        CompletableFuture<MsearchResponse<KnowledgeGraphMarkResultResponse>> future;
+        try {
+            future = asyncClient.msearch(m -> m.searches(items), KnowledgeGraphMarkResultResponse.class);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((esResponse, e) -> {
+            stageMetrics.recordSince(QueryStageMetrics.MSEARCH, QueryStageMetrics.ES_ROUNDTRIP, sentNanos);
+            if (e != null) {
+                log.error("KnowledgeGraphSearchBatcher#send error, batchSize={}.", batch.size(), e);
+                batch.forEach(pending -> pending.future.completeExceptionally(e));
+                return;
+            }
+            List<MultiSearchResponseItem<KnowledgeGraphMarkResultResponse>> responses = esResponse.responses();
+            for (int i = 0; i < batch.size(); i++) {
+                CompletableFuture<ResponseBody<KnowledgeGraphMarkResultResponse>> result = batch.get(i).future;
+                if (i >= responses.size()) {
+                    result.completeExceptionally(new IOException("msearch returned " + responses.size() + " responses for " + batch.size() + " searches"));
+                } else if (responses.get(i).isResult()) {
+                    result.complete(responses.get(i).result());
+                } else {
+                    result.completeExceptionally(new IOException("msearch item failed: " + responses.get(i).failure().error().reason()));
+                }
+            }
+        });
+    }
+
+    private static final class Pending {
+        final RequestItem item;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<ResponseBody<KnowledgeGraphMarkResultResponse>> future = new CompletableFuture<>();
+
+        Pending(RequestItem item) {
+            this.item = item;
+        }
+    }
+}
@@ -1,214 +1,918 @@
 package com.stressTest.knowledgeGraph;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.*;
 import co.elastic.clients.elasticsearch.core.*;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.msearch.MultisearchBody;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import co.elastic.clients.elasticsearch.core.search.TrackHits;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.transport.TransportOptions;
 import com.google.common.collect.Lists;
+import com.stressTest.util.CursorPageResult;
 import com.stressTest.util.EsClient;
+import com.stressTest.util.EsConcurrencyLimiter;
 import com.stressTest.util.PageResult;
+import com.stressTest.util.QueryStageMetrics;
+import com.stressTest.util.SingleFlight;
+import jakarta.json.stream.JsonGenerator;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.net.SocketTimeoutException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class KnowledgeGraphService {
 
-    ElasticsearchClient client = EsClient.getClint();
+    @Resource
+    ElasticsearchClient client;
+    @Resource
+    ElasticsearchAsyncClient asyncClient;
+    @Resource
+    RestClient restClient;
 
-    private final String index_name = "knowledge_graph_recommend_index";
+    static final String index_name = "knowledge_graph_recommend_index";
+
+    /**
+     * 查询只取response需要的字段，其余字段（时间戳、courseDocId、sort）不从ES返回
+     */
+    static final List<String> RESPONSE_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "resourceId", "tagIdList", "resourceType", "resourceSubtype", "sectionTagIds", "gradeTagIds"));
+
+    /**
+     * 原样透传时只保留总数和_source
+     */
+    private static final String RAW_FILTER_PATH = "hits.total,hits.hits._source";
+
+    /**
+     * ES的timeout至少比查询期限早这么多毫秒，留给响应传输和解析
+     */
+    private static final long DEADLINE_MARGIN_MILLIS = 5;
+
+    /**
+     * 游标分页的PIT保活时间，两次翻页间隔不能超过该值
+     */
+    @Value("${stressTest.query.pitKeepAlive:1m}")
+    private String pitKeepAlive;
+
+    /**
+     * 默认查询期限，0表示不限
+     */
+    @Value("${stressTest.query.timeoutMillis:0}")
+    private long defaultTimeoutMillis;
+
+    @Value("${stressTest.singleFlight.enabled:true}")
+    private boolean singleFlightEnabled;
+    /**
+     * 等待在途请求的超时时间，超时后自行查询
+     */
+    @Value("${stressTest.singleFlight.timeoutMillis:1000}")
+    private long singleFlightTimeoutMillis;
+
+    /**
+     * 标签字典的容量，写入的标签种类超过时拒绝，防止任意写入无限撑大常驻内存的字典
+     */
+    @Value("${stressTest.tagDictionary.maxSize:100000}")
+    private int tagDictionaryMaxSize;
+
+    private final SingleFlight<KnowledgeGraphQueryKey, PageResult<KnowledgeGraphMarkResultResponse>> singleFlight = new SingleFlight<>();
+
+    @PostConstruct
+    public void init() {
+        KnowledgeGraphTagDictionary.setMaxSize(tagDictionaryMaxSize);
+    }
+
+    @Resource
+    private KnowledgeGraphBulkIngester bulkIngester;
+    @Resource
+    private KnowledgeGraphDataGenerator dataGenerator;
+    @Resource
+    private KnowledgeGraphQueryCache queryCache;
+    @Resource
+    private QueryStageMetrics stageMetrics;
+    @Resource
+    private KnowledgeGraphLocalIndex localIndex;
+    @Resource
+    private KnowledgeGraphSearchBatcher searchBatcher;
+    @Resource
+    private KnowledgeGraphTotalHitsPolicy totalHitsPolicy;
+    @Resource
+    private KnowledgeGraphWriteBuffer writeBuffer;
+    @Resource
+    private EsConcurrencyLimiter concurrencyLimiter;
+    @Resource
+    private KnowledgeGraphHedgedSearcher hedgedSearcher;
+    @Resource
+    private KnowledgeGraphRoutingStrategy routingStrategy;
+    @Resource
+    private EsClient esClient;
 
 
     public PageResult<KnowledgeGraphMarkResultResponse> queryTerms(KnowledgeGraphTestQueryRequest request) {
+        try {
+            return queryTermsOrThrow(request);
+        } catch (IOException e) {
+            log.error("KnowledgeGraphMarkResultDao#queryPage error.", e);
+            return new PageResult<>();
+        }
+    }
+
+    /**
+     * 与queryTerms相同，访问ES出错时抛出IOException而不是返回空页（压测需要区分失败与空结果）
+     */
+    public PageResult<KnowledgeGraphMarkResultResponse> queryTermsOrThrow(KnowledgeGraphTestQueryRequest request) throws IOException {
+        // 游标分页：PIT + search_after，不受max_result_window限制
+        if (request.isCursorMode() || StringUtils.hasText(request.getCursor())) {
+            return queryByCursor(request);
+        }
+        // 本地索引已就绪时不访问ES；指定索引时仍查ES
+        if (localIndex.isServing() && !StringUtils.hasText(request.getIndexName())) {
+            return localIndex.query(request);
+        }
+        KnowledgeGraphQueryKey key = KnowledgeGraphQueryKey.of(request);
+        long generation = 0;
+        if (queryCache.isEnabled()) {
+            PageResult<KnowledgeGraphMarkResultResponse> cached = queryCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            generation = queryCache.generation();
+        }
+        long deadlineNanos = deadlineOf(request);
+        PageResult<KnowledgeGraphMarkResultResponse> pageResult;
+        try {
+            if (singleFlightEnabled) {
+                // 相同条件的并发请求共享同一次ES查询
+                pageResult = singleFlight.execute(key, Math.min(singleFlightTimeoutMillis, remainingMillis(deadlineNanos)),
+                        () -> searchPage(request, deadlineNanos), KnowledgeGraphService::shareable);
+            } else {
+                pageResult = searchPage(request, deadlineNanos);
+            }
+        } catch (ResponseStatusException e) {
+            return degrade(key, e);
+        }
+        // 超时的部分结果不缓存
+        if (queryCache.isEnabled() && !pageResult.isTimedOut()) {
+            queryCache.put(key, pageResult, generation);
+        }
+        return pageResult;
+    }
+
+    /**
+     * 异步查询：基于ElasticsearchAsyncClient，调用线程不等待ES返回。
+     * 缓存与请求合并的语义与queryTerms一致。
+     */
+    public CompletableFuture<PageResult<KnowledgeGraphMarkResultResponse>> queryTermsAsync(KnowledgeGraphTestQueryRequest request) {
+        // 游标分页需要先打开PIT，仍走同步路径
+        if (request.isCursorMode() || StringUtils.hasText(request.getCursor())) {
+            return CompletableFuture.completedFuture(queryByCursor(request));
+        }
+        if (localIndex.isServing() && !StringUtils.hasText(request.getIndexName())) {
+            return CompletableFuture.completedFuture(localIndex.query(request));
+        }
+        KnowledgeGraphQueryKey key = KnowledgeGraphQueryKey.of(request);
+        if (queryCache.isEnabled()) {
+            PageResult<KnowledgeGraphMarkResultResponse> cached = queryCache.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        long generation = queryCache.generation();
+        long deadlineNanos = deadlineOf(request);
+        CompletableFuture<PageResult<KnowledgeGraphMarkResultResponse>> future = singleFlightEnabled
+                ? singleFlight.executeAsync(key, () -> searchPageAsync(request, deadlineNanos), KnowledgeGraphService::shareable)
+                : searchPageAsync(request, deadlineNanos);
+        return future.handle((pageResult, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof ResponseStatusException) {
+                    return degrade(key, (ResponseStatusException) cause);
+                }
+                log.error("KnowledgeGraphMarkResultDao#queryPageAsync error.", e);
+                return new PageResult<>();
+            }
+            if (queryCache.isEnabled() && !pageResult.isTimedOut()) {
+                queryCache.put(key, pageResult, generation);
+            }
+            return pageResult;
+        });
+    }
+
+    /**
+     * 原样透传：ES响应经filter_path裁剪后不做解析，字节直接拷贝到输出流。
+     * 返回ES的hits结构（hits.total、hits.hits[]._source），不走缓存和请求合并。
+     */
+    public void queryTermsRaw(KnowledgeGraphTestQueryRequest request, OutputStream out) throws IOException {
+        if (!concurrencyLimiter.tryAcquire()) {
+            concurrencyLimiter.recordRejected(false);
+            throw overloaded();
+        }
+        long startNanos = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            writeRaw(request, out);
+            succeeded = true;
+        } finally {
+            if (succeeded) {
+                concurrencyLimiter.onSuccess(System.nanoTime() - startNanos);
+            } else {
+                concurrencyLimiter.onDropped();
+            }
+        }
+    }
+
+    private void writeRaw(KnowledgeGraphTestQueryRequest request, OutputStream out) throws IOException {
+        SearchRequest searchRequest = isBeyondResultWindow(request)
+                ? SearchRequest.of(s -> s.index(indexOf(request)).query(buildQuery(request)).size(0))
+                : buildSearchRequest(request);
+        Request esRequest = new Request("POST", "/" + indexOf(request) + "/_search");
+        esRequest.addParameter("filter_path", RAW_FILTER_PATH);
+        String routing = routingStrategy.routingOf(request);
+        if (routing != null) {
+            esRequest.addParameter("routing", routing);
+        }
+        esRequest.setEntity(new ByteArrayEntity(toJson(searchRequest), ContentType.APPLICATION_JSON));
+        Response esResponse = restClient.performRequest(esRequest);
+        esResponse.getEntity().writeTo(out);
+    }
+
+    private byte[] toJson(JsonpSerializable value) {
+        JsonpMapper mapper = client._jsonpMapper();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(buffer)) {
+            value.serialize(generator, mapper);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 访问ES的请求受并发上限约束，超过上限时抛出429，由调用方降级；只包住ES往返，不访问ES的路径不占名额。
+     * 调用方自己的期限导致的超时不代表ES过载，不降低并发上限
+     *
+     * @param deadlineNanos 查询期限，0表示不限
+     */
+    private <T> T limited(long deadlineNanos, EsCall<T> call) throws IOException {
+        if (!concurrencyLimiter.tryAcquire()) {
+            throw overloaded();
+        }
+        long startNanos = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return call.execute();
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            release(deadlineNanos, startNanos, failure);
+        }
+    }
+
+    private void release(long deadlineNanos, long startNanos, Throwable failure) {
+        if (failure == null) {
+            concurrencyLimiter.onSuccess(System.nanoTime() - startNanos);
+        } else if (deadlineNanos != 0 && isTimeout(failure)) {
+            concurrencyLimiter.onIgnore();
+        } else {
+            concurrencyLimiter.onDropped();
+        }
+    }
+
+    private <T> CompletableFuture<T> limitedAsync(long deadlineNanos, Supplier<CompletableFuture<T>> call) {
+        if (!concurrencyLimiter.tryAcquire()) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(overloaded());
+            return rejected;
+        }
+        long startNanos = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            concurrencyLimiter.onDropped();
+            throw e;
+        }
+        return future.whenComplete((result, e) -> release(deadlineNanos, startNanos, e));
+    }
+
+    private interface EsCall<T> {
+        T execute() throws IOException;
+    }
+
+    private static ResponseStatusException overloaded() {
+        return new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "es concurrency limit exceeded");
+    }
+
+    /**
+     * 被限流的请求：有过期缓存时用其应答，否则返回429
+     */
+    private PageResult<KnowledgeGraphMarkResultResponse> degrade(KnowledgeGraphQueryKey key, ResponseStatusException e) {
+        if (e.getStatus() != HttpStatus.TOO_MANY_REQUESTS) {
+            throw e;
+        }
+        PageResult<KnowledgeGraphMarkResultResponse> stale = queryCache.isEnabled() ? queryCache.getStale(key) : null;
+        concurrencyLimiter.recordRejected(stale != null);
+        if (stale == null) {
+            throw e;
+        }
+        return stale;
+    }
+
+    /**
+     * 查询期限对应的System.nanoTime()，0表示不限
+     */
+    private long deadlineOf(KnowledgeGraphQueryRequest request) {
+        long timeoutMillis = request.getTimeoutMillis() != null ? request.getTimeoutMillis() : defaultTimeoutMillis;
+        return timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+    }
+
+    /**
+     * 距期限的剩余毫秒数，不限时为Long.MAX_VALUE
+     */
+    private static long remainingMillis(long deadlineNanos) {
+        return deadlineNanos == 0 ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * ES的timeout比剩余时间短一个余量，留出返回部分结果的时间；不限时为null
+     */
+    private static String esTimeout(long remainingMillis) {
+        if (remainingMillis == Long.MAX_VALUE) {
+            return null;
+        }
+        return Math.max(1, remainingMillis - Math.max(DEADLINE_MARGIN_MILLIS, remainingMillis / 5)) + "ms";
+    }
+
+    private TransportOptions transportOptions(long remainingMillis) {
+        return remainingMillis == Long.MAX_VALUE ? null : esClient.withSocketTimeout(client._transport().options(), remainingMillis);
+    }
+
+    /**
+     * 期限已过（发送前或等待ES时socket超时）返回504，不当作空结果
+     */
+    private static ResponseStatusException deadlineExceeded(Throwable cause) {
+        return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "query deadline exceeded", cause);
+    }
+
+    /**
+     * 已超过期限的结果（504或ES超时的部分结果）不交给请求合并的跟随者，它们的期限可能更长
+     */
+    private static boolean shareable(PageResult<KnowledgeGraphMarkResultResponse> pageResult, Throwable e) {
+        if (e != null) {
+            return !(e instanceof ResponseStatusException && ((ResponseStatusException) e).getStatus() == HttpStatus.GATEWAY_TIMEOUT);
+        }
+        return !pageResult.isTimedOut();
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException || t instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> CompletableFuture<T> mapTimeout(CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            result.completeExceptionally(isTimeout(cause) ? deadlineExceeded(cause) : cause);
+        });
+        return result;
+    }
+
+    private PageResult<KnowledgeGraphMarkResultResponse> searchPage(KnowledgeGraphTestQueryRequest request, long deadlineNanos) throws IOException {
+        String totalHitsMode = totalHitsPolicy.modeOf(request);
+        Long estimate = totalHitsPolicy.estimate(request, totalHitsMode);
+        // ES默认max_result_window=10000
+        if (isBeyondResultWindow(request)) {
+            if (KnowledgeGraphTotalHitsPolicy.DISABLED.equals(totalHitsMode)) {
+                return pageWithoutTotal();
+            }
+            PageResult<KnowledgeGraphMarkResultResponse> emptyPage;
+            if (estimate != null) {
+                emptyPage = new PageResult<>();
+            } else if (KnowledgeGraphTotalHitsPolicy.CAPPED.equals(totalHitsMode)) {
+                emptyPage = limited(0, () -> cappedCountPage(client, request));
+            } else {
+                emptyPage = limited(0, () -> countEmptyPage(client, request));
+            }
+            return totalHitsPolicy.complete(request, totalHitsMode, estimate, emptyPage);
+        }
+        long startNanos = System.nanoTime();
+        long remainingMillis = remainingMillis(deadlineNanos);
+        if (remainingMillis <= 0) {
+            throw deadlineExceeded(null);
+        }
+        TrackHits trackHits = totalHitsPolicy.trackHits(request, totalHitsMode, estimate);
+        String timeout = esTimeout(remainingMillis);
+        String routing = routingStrategy.routingOf(request);
+        ResponseBody<KnowledgeGraphMarkResultResponse> esResponse;
+        long sentNanos;
+        try {
+            if (searchBatcher.isEnabled()) {
+                // 与并发的其他查询合并为一次_msearch，只能通过ES的timeout约束
+                RequestItem item = buildMultisearchItem(request, trackHits, timeout, routing);
+                sentNanos = stageMetrics.recordSince(QueryStageMetrics.SEARCH, QueryStageMetrics.BUILD, startNanos);
+                esResponse = limited(deadlineNanos, () -> searchBatcher.search(item, remainingMillis));
+            } else {
+                SearchRequest searchRequest = buildSearchRequest(request, trackHits, timeout, null, routing);
+                TransportOptions options = transportOptions(remainingMillis);
+                sentNanos = stageMetrics.recordSince(QueryStageMetrics.SEARCH, QueryStageMetrics.BUILD, startNanos);
+                esResponse = limited(deadlineNanos, () -> hedgedSearcher.isEnabled()
+                        ? hedgedSearcher.search(preference -> preference == null
+                        ? searchRequest
+                        : buildSearchRequest(request, trackHits, timeout, preference, routing), KnowledgeGraphMarkResultResponse.class, options)
+                        : (options == null ? client : client.withTransportOptions(options))
+                        .search(searchRequest, KnowledgeGraphMarkResultResponse.class));
+            }
+        } catch (IOException e) {
+            if (isTimeout(e)) {
+                throw deadlineExceeded(e);
+            }
+            throw e;
+        }
+        long receivedNanos = stageMetrics.recordSince(QueryStageMetrics.SEARCH, QueryStageMetrics.ES_ROUNDTRIP, sentNanos);
+        stageMetrics.recordEsTook(QueryStageMetrics.SEARCH, esResponse.took(), receivedNanos - sentNanos);
+        PageResult<KnowledgeGraphMarkResultResponse> pageResult = toPageResult(esResponse);
+        stageMetrics.recordSince(QueryStageMetrics.SEARCH, QueryStageMetrics.MAPPING, receivedNanos);
+        return totalHitsPolicy.complete(request, totalHitsMode, estimate, pageResult);
+    }
+
+    private CompletableFuture<PageResult<KnowledgeGraphMarkResultResponse>> searchPageAsync(KnowledgeGraphTestQueryRequest request, long deadlineNanos) {
+        long startNanos = System.nanoTime();
+        String totalHitsMode = totalHitsPolicy.modeOf(request);
+        Long estimate = totalHitsPolicy.estimate(request, totalHitsMode);
+        if (isBeyondResultWindow(request)) {
+            if (KnowledgeGraphTotalHitsPolicy.DISABLED.equals(totalHitsMode)) {
+                return CompletableFuture.completedFuture(pageWithoutTotal());
+            }
+            if (estimate != null) {
+                return CompletableFuture.completedFuture(totalHitsPolicy.complete(request, totalHitsMode, estimate, new PageResult<>()));
+            }
+            if (KnowledgeGraphTotalHitsPolicy.CAPPED.equals(totalHitsMode)) {
+                SearchRequest searchRequest = buildCappedCountRequest(request,
+                        totalHitsPolicy.trackHits(request, totalHitsMode, null), routingStrategy.routingOf(request));
+                long sentNanos = stageMetrics.recordSince(QueryStageMetrics.COUNT, QueryStageMetrics.BUILD, startNanos);
+                return limitedAsync(0, () -> asyncClient.search(searchRequest, KnowledgeGraphMarkResultResponse.class)).thenApply(esResponse -> {
+                    stageMetrics.recordSince(QueryStageMetrics.COUNT, QueryStageMetrics.ES_ROUNDTRIP, sentNanos);
+                    return toPageResult(esResponse);
+                });
+            }
+            CountRequest countRequest = buildCountRequest(request, routingStrategy.routingOf(request));
+            long sentNanos = stageMetrics.recordSince(QueryStageMetrics.COUNT, QueryStageMetrics.BUILD, startNanos);
+            return limitedAsync(0, () -> asyncClient.count(countRequest)).thenApply(esCountResponse -> {
+                stageMetrics.recordSince(QueryStageMetrics.COUNT, QueryStageMetrics.ES_ROUNDTRIP, sentNanos);
+                return totalHitsPolicy.complete(request, totalHitsMode, null, toEmptyPage(esCountResponse));
+            });
+        }
+        long remainingMillis = remainingMillis(deadlineNanos);
+        if (remainingMillis <= 0) {
+            CompletableFuture<PageResult<KnowledgeGraphMarkResultResponse>> expired = new CompletableFuture<>();
+            expired.completeExceptionally(deadlineExceeded(null));
+            return expired;
+        }
+        TrackHits trackHits = totalHitsPolicy.trackHits(request, totalHitsMode, estimate);
+        String timeout = esTimeout(remainingMillis);
+        String routing = routingStrategy.routingOf(request);
+        CompletableFuture<? extends ResponseBody<KnowledgeGraphMarkResultResponse>> future;
+        long sentNanos;
+        if (searchBatcher.isEnabled()) {
+            RequestItem item = buildMultisearchItem(request, trackHits, timeout, routing);
+            sentNanos = stageMetrics.recordSince(QueryStageMetrics.SEARCH, QueryStageMetrics.BUILD, startNanos);
+            future = limitedAsync(deadlineNanos, () -> searchBatcher.searchAsync(item));
+        } else {
+            SearchRequest searchRequest = buildSearchRequest(request, trackHits, timeout, null, routing);
+            TransportOptions options = transportOptions(remainingMillis);
+            sentNanos = stageMetrics.recordSince(QueryStageMetrics.SEARCH, QueryStageMetrics.BUILD, startNanos);
+            future = limitedAsync(deadlineNanos, () -> hedgedSearcher.isEnabled()
+                    ? hedgedSearcher.searchAsync(preference -> preference == null
+                    ? searchRequest
+                    : buildSearchRequest(request, trackHits, timeout, preference, routing), KnowledgeGraphMarkResultResponse.class, options)
+                    : (options == null ? asyncClient : asyncClient.withTransportOptions(options))
+                    .search(searchRequest, KnowledgeGraphMarkResultResponse.class));
+        }
+        return mapTimeout(future).thenApply(esResponse -> {
+            long receivedNanos = stageMetrics.recordSince(QueryStageMetrics.SEARCH, QueryStageMetrics.ES_ROUNDTRIP, sentNanos);
+            stageMetrics.recordEsTook(QueryStageMetrics.SEARCH, esResponse.took(), receivedNanos - sentNanos);
+            PageResult<KnowledgeGraphMarkResultResponse> pageResult = toPageResult(esResponse);
+            stageMetrics.recordSince(QueryStageMetrics.SEARCH, QueryStageMetrics.MAPPING, receivedNanos);
+            return totalHitsPolicy.complete(request, totalHitsMode, estimate, pageResult);
+        });
+    }
+
+    private static boolean isBeyondResultWindow(KnowledgeGraphQueryRequest request) {
+        return request.getPageNum() * request.getPageSize() >= 10000;
+    }
+
+    static SearchRequest buildSearchRequest(KnowledgeGraphTestQueryRequest request) {
+        return buildSearchRequest(request, null);
+    }
+
+    static SearchRequest buildSearchRequest(KnowledgeGraphTestQueryRequest request, TrackHits trackHits) {
+        return buildSearchRequest(request, trackHits, null, null, null);
+    }
+
+    /**
+     * @param trackHits  总数统计方式，为空时使用ES默认（统计到10000）
+     * @param timeout    ES的查询超时，超时的分片返回已收集的结果，为空时不限
+     * @param preference 分片副本的选择，对冲请求用不同的值换一个副本
+     * @param routing    按子类型路由时只访问这些分片，为空时访问全部分片
+     */
+    static SearchRequest buildSearchRequest(KnowledgeGraphTestQueryRequest request, TrackHits trackHits,
+                                            String timeout, String preference, String routing) {
         SearchRequest.Builder builder = new SearchRequest.Builder();
-        builder.index(index_name)
-                .query(q -> q
-                        .bool(bool -> {
-                            // 资源子类型
-                            if (!CollectionUtils.isEmpty(request.getResourceSubtypeList())) {
-                                List<FieldValue> resourceSubtypeFieldValue = request.getResourceSubtypeList().stream().map(FieldValue::of).collect(Collectors.toList());
-                                bool.filter(a -> a
-                                        .terms(b -> b
-                                                .field("resourceSubtype")
-                                                .terms(c -> c.value(resourceSubtypeFieldValue))
-                                        ));
-                            }
-                            // 打标记录
-                            if (!CollectionUtils.isEmpty(request.getTagIdList())) {
-                                List<FieldValue> tagIdListFieldValue = request.getTagIdList().stream().map(FieldValue::of).collect(Collectors.toList());
-                                bool.filter(a -> a
-                                        .terms(b -> b
-                                                .field("tagIdList")
-                                                .terms(c -> c.value(tagIdListFieldValue))
-                                        ));
-                            }
-                            return bool;
-                        })
-                );
+        builder.index(indexOf(request))
+                .query(buildQuery(request))
+                .source(responseSource())
+                .trackTotalHits(trackHits)
+                .timeout(timeout)
+                .preference(preference)
+                .routing(routing);
         // 排序字段
         if (request.isSort()) {
-            builder.sort(
-                    SortOptions.of(e ->
-                            e.field(FieldSort.of(a ->
-                                    a.field("sort").order(SortOrder.Asc)))));
+            builder.sort(sortBy("sort"));
         }
         // 分页参数
         builder
                 .from((request.getPageNum() - 1) * request.getPageSize())
                 .size(request.getPageSize());
+        return builder.build();
+    }
+
+    /**
+     * 与buildSearchRequest相同的查询，作为_msearch中的一项
+     */
+    static RequestItem buildMultisearchItem(KnowledgeGraphTestQueryRequest request, TrackHits trackHits, String timeout, String routing) {
+        MultisearchBody.Builder body = new MultisearchBody.Builder();
+        body.query(buildQuery(request))
+                .source(responseSource())
+                .trackTotalHits(trackHits)
+                .timeout(timeout);
+        if (request.isSort()) {
+            body.sort(sortBy("sort"));
+        }
+        body
+                .from((request.getPageNum() - 1) * request.getPageSize())
+                .size(request.getPageSize());
+        return RequestItem.of(r -> r
+                .header(h -> h.index(indexOf(request)).routing(routing))
+                .body(body.build()));
+    }
 
+    static PageResult<KnowledgeGraphMarkResultResponse> toPageResult(ResponseBody<KnowledgeGraphMarkResultResponse> esResponse) {
         PageResult<KnowledgeGraphMarkResultResponse> pageResult = new PageResult<>();
+        addPageData(pageResult, esResponse);
+        pageResult.setTimedOut(esResponse.timedOut());
+        TotalHits total = esResponse.hits().total();
+        if (total == null) {
+            // track_total_hits=false
+            pageResult.setTotalSize(null);
+            pageResult.setTotalRelation(null);
+        } else {
+            pageResult.setTotalSize(new BigInteger(String.valueOf(total.value())));
+            pageResult.setTotalRelation(KnowledgeGraphTotalHitsPolicy.relationOf(total.relation()));
+        }
+        return pageResult;
+    }
 
-        // ES默认max_result_window=10000
-        if (request.getPageNum() * request.getPageSize() >= 10000) {
-            return countEmptyPage(client, request);
+    public SingleFlight<KnowledgeGraphQueryKey, PageResult<KnowledgeGraphMarkResultResponse>> getSingleFlight() {
+        return singleFlight;
+    }
+
+    private PageResult<KnowledgeGraphMarkResultResponse> queryByCursor(KnowledgeGraphTestQueryRequest request) {
+        CursorPageResult<KnowledgeGraphMarkResultResponse> pageResult = new CursorPageResult<>();
+        KnowledgeGraphQueryCursor cursor;
+        try {
+            if (StringUtils.hasText(request.getCursor())) {
+                cursor = KnowledgeGraphQueryCursor.decode(request.getCursor());
+                cursor.checkFilter(request, request.isSort());
+            } else {
+                OpenPointInTimeResponse pit = client.openPointInTime(p -> p
+                        .index(indexOf(request))
+                        .keepAlive(t -> t.time(pitKeepAlive)));
+                cursor = new KnowledgeGraphQueryCursor();
+                cursor.setPitId(pit.id());
+                cursor.setFilterHash(KnowledgeGraphQueryCursor.filterHashOf(request, request.isSort()));
+            }
+        } catch (IOException | ElasticsearchException e) {
+            log.error("KnowledgeGraphMarkResultDao#queryByCursor open pit error.", e);
+            throw cursorError(e);
         }
+        boolean firstPage = cursor.getSearchAfter() == null;
 
-        SearchResponse<KnowledgeGraphMarkResultEntity> esResponse;
+        SearchRequest.Builder builder = new SearchRequest.Builder();
+        builder.pit(p -> p.id(cursor.getPitId()).keepAlive(t -> t.time(pitKeepAlive)))
+                .query(buildQuery(request))
+                .source(responseSource())
+                .size(request.getPageSize())
+                // 总数只在第一页统计，之后随游标传递
+                .trackTotalHits(t -> t.enabled(firstPage));
+        // 排序字段，_shard_doc作为唯一的tiebreaker
+        if (request.isSort()) {
+            builder.sort(sortBy("sort"));
+        }
+        builder.sort(sortBy("_shard_doc"));
+        if (!firstPage) {
+            builder.searchAfter(cursor.getSearchAfter().stream().map(FieldValue::of).collect(Collectors.toList()));
+        }
+
+        SearchResponse<KnowledgeGraphMarkResultResponse> esResponse;
         try {
-            esResponse = client.search(builder.build(), KnowledgeGraphMarkResultEntity.class);
-        } catch (IOException e) {
-            log.error("KnowledgeGraphMarkResultDao#queryPage error.", e);
+            esResponse = client.search(builder.build(), KnowledgeGraphMarkResultResponse.class);
+        } catch (IOException | ElasticsearchException e) {
+            log.error("KnowledgeGraphMarkResultDao#queryByCursor error.", e);
+            if (firstPage) {
+                closePointInTime(cursor.getPitId());
+            }
+            throw cursorError(e);
+        }
+        addPageData(pageResult, esResponse);
+        if (firstPage && esResponse.hits().total() != null) {
+            cursor.setTotal(esResponse.hits().total().value());
+        }
+        pageResult.setTotalSize(BigInteger.valueOf(cursor.getTotal()));
+
+        List<Hit<KnowledgeGraphMarkResultResponse>> hits = esResponse.hits().hits();
+        if (hits.size() < request.getPageSize()) {
+            // 已到末尾，释放PIT
+            closePointInTime(esResponse.pitId() != null ? esResponse.pitId() : cursor.getPitId());
             return pageResult;
         }
-        if (!CollectionUtils.isEmpty(esResponse.hits().hits())) {
-            for (Hit<KnowledgeGraphMarkResultEntity> hit : esResponse.hits().hits()) {
-                if (hit.source() == null) {
-                    continue;
-                }
-                KnowledgeGraphMarkResultResponse e;
-                e = new KnowledgeGraphMarkResultResponse();
-                e.setResourceId(hit.source().getResourceId());
-                e.setTagIdList(hit.source().getTagIdList());
-                e.setResourceType(hit.source().getResourceType());
-                e.setResourceSubtype(hit.source().getResourceSubtype());
-                e.setSectionTagIds(hit.source().getSectionTagIds());
-                e.setGradeTagIds(hit.source().getGradeTagIds());
-                pageResult.getPageData().add(e);
-            }
-        }
-        pageResult.setTotalSize(new BigInteger(String.valueOf(esResponse.hits().total().value())));
+        if (esResponse.pitId() != null) {
+            cursor.setPitId(esResponse.pitId());
+        }
+        cursor.setSearchAfter(hits.get(hits.size() - 1).sort().stream().map(FieldValue::longValue).collect(Collectors.toList()));
+        pageResult.setCursor(cursor.encode());
         return pageResult;
     }
 
+    /**
+     * 游标分页出错时不能返回空页（与最后一页无法区分）：PIT过期或不存在返回410，其余返回502
+     */
+    private static ResponseStatusException cursorError(Exception e) {
+        if (e instanceof ElasticsearchException) {
+            ElasticsearchException esException = (ElasticsearchException) e;
+            if (esException.status() == 404 || "search_context_missing_exception".equals(esException.error().type())) {
+                return new ResponseStatusException(HttpStatus.GONE, "cursor expired, restart from the first page", e);
+            }
+        }
+        return new ResponseStatusException(HttpStatus.BAD_GATEWAY, "cursor query failed", e);
+    }
 
-    // 返回带有count值的空页
-    private PageResult<KnowledgeGraphMarkResultResponse> countEmptyPage(ElasticsearchClient client, KnowledgeGraphQueryRequest request) {
-        PageResult<KnowledgeGraphMarkResultResponse> result = new PageResult<>();
-        CountResponse esCountResponse;
+    private void closePointInTime(String pitId) {
         try {
-            CountRequest.Builder countBuilder = new CountRequest.Builder();
-            countBuilder.query(q -> q
-                    .bool(bool -> {
-                                // 资源子类型（必传）
-                                bool.filter(a -> a
-                                        .bool(b -> {
-                                            for (String subType : request.getResourceSubtypeList()) {
-                                                b.should(c -> c
-                                                        .term(d -> d
-                                                                .field("resourceSubtype")
-                                                                .value(FieldValue.of(subType))
-                                                        )
-                                                );
-                                            }
-                                            b.minimumShouldMatch("1");
-                                            return b;
-                                        })
-                                );
-                                // 打标记录（必传）
-                                bool.filter(a -> a
-                                        .bool(b -> {
-                                            for (String tagId : request.getTagIdList()) {
-                                                b.should(c -> c
-                                                        .term(d -> d
-                                                                .field("tagIdList")
-                                                                .value(FieldValue.of(tagId))
-                                                        )
-                                                );
-                                            }
-                                            b.minimumShouldMatch("1");
-                                            return b;
-                                        })
-                                );
-                                return bool;
-                            }
-                    ));
-
-            esCountResponse = client.count(countBuilder.build());
+            client.closePointInTime(c -> c.id(pitId));
         } catch (IOException e) {
-            log.error("KnowledgeGraphMarkResultDao#queryPage count error.", e);
-            return result;
+            log.warn("KnowledgeGraphMarkResultDao#closePointInTime error.", e);
         }
+    }
+
+    /**
+     * 请求指定的索引，默认为别名
+     */
+    static String indexOf(KnowledgeGraphQueryRequest request) {
+        return StringUtils.hasText(request.getIndexName()) ? request.getIndexName() : index_name;
+    }
+
+    static Query buildQuery(KnowledgeGraphQueryRequest request) {
+        return Query.of(q -> q
+                .bool(bool -> {
+                    // 资源子类型
+                    if (!CollectionUtils.isEmpty(request.getResourceSubtypeList())) {
+                        List<FieldValue> resourceSubtypeFieldValue = request.getResourceSubtypeList().stream().map(FieldValue::of).collect(Collectors.toList());
+                        bool.filter(a -> a
+                                .terms(b -> b
+                                        .field("resourceSubtype")
+                                        .terms(c -> c.value(resourceSubtypeFieldValue))
+                                ));
+                    }
+                    // 打标记录
+                    if (!CollectionUtils.isEmpty(request.getTagIdList())) {
+                        List<FieldValue> tagIdListFieldValue = request.getTagIdList().stream().map(FieldValue::of).collect(Collectors.toList());
+                        bool.filter(a -> a
+                                .terms(b -> b
+                                        .field("tagIdList")
+                                        .terms(c -> c.value(tagIdListFieldValue))
+                                ));
+                    }
+                    return bool;
+                })
+        );
+    }
+
+    static SourceConfig responseSource() {
+        return SourceConfig.of(s -> s.filter(f -> f.includes(RESPONSE_FIELDS)));
+    }
+
+    static SortOptions sortBy(String field) {
+        return SortOptions.of(e ->
+                e.field(FieldSort.of(a ->
+                        a.field(field).order(SortOrder.Asc))));
+    }
+
+    private static void addPageData(PageResult<KnowledgeGraphMarkResultResponse> pageResult,
+                                    ResponseBody<KnowledgeGraphMarkResultResponse> esResponse) {
+        if (CollectionUtils.isEmpty(esResponse.hits().hits())) {
+            return;
+        }
+        // _source已按response字段过滤，直接反序列化为response，不经过entity
+        for (Hit<KnowledgeGraphMarkResultResponse> hit : esResponse.hits().hits()) {
+            if (hit.source() == null) {
+                continue;
+            }
+            pageResult.getPageData().add(hit.source());
+        }
+    }
+
+
+
+    // 返回带有count值的空页
+    private PageResult<KnowledgeGraphMarkResultResponse> countEmptyPage(ElasticsearchClient client, KnowledgeGraphQueryRequest request) throws IOException {
+        long startNanos = System.nanoTime();
+        CountRequest countRequest = buildCountRequest(request, routingStrategy.routingOf(request));
+        long sentNanos = stageMetrics.recordSince(QueryStageMetrics.COUNT, QueryStageMetrics.BUILD, startNanos);
+        CountResponse esCountResponse = client.count(countRequest);
+        stageMetrics.recordSince(QueryStageMetrics.COUNT, QueryStageMetrics.ES_ROUNDTRIP, sentNanos);
+        return toEmptyPage(esCountResponse);
+    }
+
+    // capped：size=0的search在上限处停止计数，超过上限时返回上限值和gte，不做精确count
+    private PageResult<KnowledgeGraphMarkResultResponse> cappedCountPage(ElasticsearchClient client, KnowledgeGraphTestQueryRequest request) throws IOException {
+        long startNanos = System.nanoTime();
+        TrackHits trackHits = totalHitsPolicy.trackHits(request, KnowledgeGraphTotalHitsPolicy.CAPPED, null);
+        SearchRequest searchRequest = buildCappedCountRequest(request, trackHits, routingStrategy.routingOf(request));
+        long sentNanos = stageMetrics.recordSince(QueryStageMetrics.COUNT, QueryStageMetrics.BUILD, startNanos);
+        SearchResponse<KnowledgeGraphMarkResultResponse> esResponse = client.search(searchRequest, KnowledgeGraphMarkResultResponse.class);
+        stageMetrics.recordSince(QueryStageMetrics.COUNT, QueryStageMetrics.ES_ROUNDTRIP, sentNanos);
+        return toPageResult(esResponse);
+    }
+
+    /**
+     * 只统计总数的查询：不取文档，按trackHits在上限处停止计数
+     */
+    static SearchRequest buildCappedCountRequest(KnowledgeGraphTestQueryRequest request, TrackHits trackHits, String routing) {
+        return new SearchRequest.Builder()
+                .index(indexOf(request))
+                .query(buildQuery(request))
+                .trackTotalHits(trackHits)
+                .routing(routing)
+                .source(s -> s.fetch(false))
+                .size(0)
+                .build();
+    }
+
+    static CountRequest buildCountRequest(KnowledgeGraphQueryRequest request) {
+        return buildCountRequest(request, null);
+    }
+
+    /**
+     * @param routing 按子类型路由时只统计这些分片，为空时统计全部分片
+     */
+    static CountRequest buildCountRequest(KnowledgeGraphQueryRequest request, String routing) {
+        CountRequest.Builder countBuilder = new CountRequest.Builder();
+        countBuilder.index(indexOf(request))
+                .routing(routing);
+        countBuilder.query(q -> q
+                .bool(bool -> {
+                            // 资源子类型（必传）
+                            bool.filter(a -> a
+                                    .bool(b -> {
+                                        for (String subType : request.getResourceSubtypeList()) {
+                                            b.should(c -> c
+                                                    .term(d -> d
+                                                            .field("resourceSubtype")
+                                                            .value(FieldValue.of(subType))
+                                                    )
+                                            );
+                                        }
+                                        b.minimumShouldMatch("1");
+                                        return b;
+                                    })
+                            );
+                            // 打标记录（必传）
+                            bool.filter(a -> a
+                                    .bool(b -> {
+                                        for (String tagId : request.getTagIdList()) {
+                                            b.should(c -> c
+                                                    .term(d -> d
+                                                            .field("tagIdList")
+                                                            .value(FieldValue.of(tagId))
+                                                    )
+                                            );
+                                        }
+                                        b.minimumShouldMatch("1");
+                                        return b;
+                                    })
+                            );
+                            return bool;
+                        }
+                ));
+        return countBuilder.build();
+    }
+
+    private static PageResult<KnowledgeGraphMarkResultResponse> pageWithoutTotal() {
+        PageResult<KnowledgeGraphMarkResultResponse> result = new PageResult<>();
+        result.setTotalSize(null);
+        result.setTotalRelation(null);
+        return result;
+    }
+
+    private static PageResult<KnowledgeGraphMarkResultResponse> toEmptyPage(CountResponse esCountResponse) {
+        PageResult<KnowledgeGraphMarkResultResponse> result = new PageResult<>();
         result.setTotalSize(new BigInteger(String.valueOf(esCountResponse.count())));
         result.setPageData(Lists.newArrayList());
         return result;
     }
 
-    public void batchInsert(KnowledgeGraphInsertRequest request) {
-        List<String> resourceTypes = Lists.newArrayList("question", "unit", "word", "wordQuestion");
-        List<String> tagIds = Lists.newArrayList("ZTYJ25_0_0_0_5", "HTSXD7_0_0", "YPLX2_0_0_4_0", "YPLX2_0_2_3", "YPLX2_0_3_1", "YPLX2_0_1_0", "YPSL18_0_0", "YPGN16_0_1", "YFZS20_0_0_2_0_4_0_1_5", "YFZS20_1_0_1", "TLWJN12_0_0", "KWJN0_0_0_1_2", "SWPZblm10_0_0_0", "SWPZkbbb11_0_1_1", "SWPZkbbb11_0_0_1", "SWPZkbbb11_0_1_0", "SWPZkbbb11_0_0_0", "RWLX9_0_0", "ZTYJ25_0_2_0_3", "YPLX2_0_2_8", "YPLX2_0_2_0", "YPGN16_0_13", "YuYongZS3_0_0_6", "YuYongZS3_1_0_2", "KYWJN6_0_3_1", "SWPZblm10_0_1_0", "RWLX9_0_1", "JHX8_0_1", "ZTYJ25_0_1_0_17", "YuYongZS3_0_0_7", "YFZS20_0_0_2_0_4_4_1_0", "KYWJN6_0_0_3", "ZTYJ25_0_0_0_0", "YPLX2_0_0_2_0_2", "YuYinZS4_0_0_0_0_1_0_6", "YuYinZS4_0_0_0_0_1_10_0", "YuYinZS4_0_0_0_0_1_19_0", "YuYinZS4_0_0_1_0_1_4", "YuYinZS4_1_0_0_0", "CHZS1_1_0_0_0", "XXCL17_0_1_12", "CHZS1_0_0_0_0", "CHZS1_0_0_1_0_3_0", "CHZS1_0_0_1_0_3_1", "CHZS1_0_0_2_0_0", "CHZS1_0_0_3_0_1", "CHZS1_0_0_4_0_2_0", "CHZS1_0_0_5_0_0_0", "CHZS1_0_0_5_0_3_0", "CHZS1_0_0_5_0_1_0", "CHZS1_0_0_5_0_2_0", "CHZS1_0_0_7_2672", "ZTYJ25_0_0_0_3", "HTSXD7_0_1", "YPLX2_0_0_7", "YPGN16_0_2", "YFZS20_0_0_2_0_4_7_1_0", "YPZS22_0_0_12", "YPZS22_1_0_2", "YPZS22_0_1_0_2", "KYWJN6_0_0_5", "ZTYJ25_0_0_0_10", "YPLX2_0_0_4_1", "YFZS20_0_0_2_0_8_3", "YFZS20_0_0_2_0_9_4_2_1", "YFZS20_0_0_2_0_4_0_1_6", "ZTYJ25_0_0_0_1", "YPLX2_0_0_2_1", "YuYinZS4_0_0_2_0_0", "CHZS1_0_0_3_0_0", "CHZS1_0_0_4_0_3_0_3", "CHZS1_0_0_5_0_0_1", "CHZS1_0_0_5_0_3_5", "CHZS1_0_0_5_0_1_1", "CHZS1_0_0_5_0_2_1", "CHZS1_0_0_7_3099", "YFZS20_0_0_3_1_76", "KWJN0_0_0_1_4", "YPLX2_0_0_2_0_6", "YuYinZS4_0_0_0_0_1_11_0", "YuYinZS4_0_0_0_0_3_3_0", "YuYinZS4_0_0_0_0_3_8_0", "YuYinZS4_0_0_0_0_1_5_0", "YuYinZS4_0_0_0_0_1_4_1", "CHZS1_0_0_3_0_5", "CHZS1_0_0_3_0_2", "CHZS1_0_0_3_0_4", "CHZS1_0_0_4_0_3_0_5", "CHZS1_0_0_5_0_3_8", "CHZS1_0_0_5_0_2_3", "CHZS1_0_0_7_3075", "ZTYJ25_0_0_0_2", "YFZS20_0_0_2_0_4_0_1_0", "ZTYJ25_0_0_0_6", "YPLX2_0_0_6_0", "YPLX2_0_2_2", "YPLX2_0_0_14_9", "YPLX2_0_1_1", "YuYinZS4_0_0_2_0_1", "YuYinZS4_0_0_5_0_0_0_1", "YuYinZS4_1_0_2", "YFZS20_0_0_2_0_0_1_1_0", "YFZS20_0_0_3_13_195", "TLWJN12_0_1_1_1", "TLWJN12_0_1_2_0", "TLWJN12_0_1_0_4", "KYWJN6_0_1_13", "KYWJN6_0_4_4", "SWPZblm10_0_0_1", "SWPZblm10_0_2", "SWPZkbbb11_0_2_1", "YinPinTZfy19_0_0", "YinPinTZys21_0_0_2", "JHX8_0_0", "WBNDyds13_0_0_0", "ZDXS23_0_5", "CHZS1_0_0_4_0_3_9_0", "CHZS1_0_0_7_15234", "YuYongZS3_0_0_8", "YuYinZS4_0_0_0_0_1_12_0", "YuYinZS4_0_0_0_0_1_13_0", "YuYinZS4_0_0_0_0_1_8_1", "CHZS1_0_0_4_0_3_2_0", "CHZS1_0_0_5_0_3_2", "CHZS1_0_0_7_1702", "ZTYJ25_0_0_0_9", "YinPinTZys21_0_0_0", "ZTYJ25_0_1_0_6", "YPLX2_0_2_1", "KYWJN6_0_4_2", "XXCL17_0_1_6", "ZTYJ25_0_0_0_14", "CHZS1_1_0_0_1", "KYWJN6_0_0_2", "XXCL17_0_1_8", "XXCL17_0_1_11", "CHZS1_0_0_4_0_3_1_2", "CHZS1_0_0_4_0_3_13_1", "CHZS1_0_0_5_0_3_4", "CHZS1_0_0_5_0_2_2", "CHZS1_0_0_7_846", "ZTYJ25_0_2_0_14", "ZTYJ25_0_0_0_23", "YPLX2_0_0_5", "YuYinZS4_0_0_4_0_1_0_2", "YuYinZS4_0_0_4_0_0_2", "YuYinZS4_0_0_5_0_0_0_0", "YuYinZS4_0_0_6_0_1", "YuYinZS4_0_0_6_0_0", "YuYinZS4_1_0_2_0", "YFZS20_0_0_2_0_0_0", "YFZS20_0_0_2_0_4_0", "YFZS20_0_0_3_1_100", "YFZS20_0_0_3_15_5", "YFZS20_0_0_3_1_88", "WBNDyds13_0_0_3", "YPLX2_0_0_6", "CHZS1_1_0_1", "YFZS20_0_0_2_0_4_0_0_2", "YFZS20_0_0_3_13_194", "YuYongZS3_0_0_2", "YuYongZS3_0_2_0_0", "YuYongZS3_0_4_0_1_0", "KYWJN6_0_1_1", "ZTYJ25_0_0_0_13", "YPGN16_0_6", "YFZS20_0_0_0_0_1_0_0", "YFZS20_0_0_2_0_0_0_0", "WBNDyds13_0_1_0", "YFZS20_0_0_2_0_0_1_1_8", "YFZS20_0_0_3_13_273", "YuYongZS3_0_4_0_0_0", "KWJN0_0_0_1_5", "YFZS20_0_0_2_0_4_1_0_2", "WBNDyds13_0_0_1", "ZTYJ25_0_0_0_16", "YPGN16_0_8", "YuYinZS4_0_0_1_0_0_1", "YuYinZS4_0_0_5_0_3_0_3", "YFZS20_0_0_2_0_0_3_2", "YFZS20_0_0_3_8_1", "YFZS20_1_0_0_0", "YuYongZS3_0_0_3", "YuYongZS3_0_1_0_2_0", "YuYongZS3_0_3_0_8", "YuYongZS3_0_4_0_2_0", "YuYongZS3_0_4_0_0_1", "YuYongZS3_1_0_1", "CHZS1_0_0_5_0_3_1", "CHZS1_0_0_7_1614", "CHZS1_0_0_4_0_3_2_1", "CHZS1_0_0_4_0_3_2_6", "CHZS1_0_0_5_0_3_6", "CHZS1_0_0_7_1176", "ZTYJ25_0_1_0_3", "YFZS20_0_0_2_0_0_1_0_3", "TLWJN12_0_1_0_0", "YFZS20_0_0_0_0_1_0_1", "YFZS20_0_0_3_1_102", "TLWJN12_0_1_0_2", "YFZS20_0_0_0_0_6_2", "YFZS20_0_0_2_0_0_1_0_1", "TLWJN12_0_1_0_6", "YFZS20_0_0_0_0_1_0_3", "YFZS20_0_0_2_0_4_5_1_0", "YuYinZS4_0_0_0_0_2_22_0", "YuYinZS4_0_0_0_0_4_15", "CHZS1_0_0_7_3064", "KYWJN6_0_4_3", "KWJN0_0_0_1_3", "XXCL17_0_1_0", "YuYinZS4_0_0_0_0_3_3_1", "YuYinZS4_0_0_0_0_1_18_1", "CHZS1_0_0_4_0_1_12", "CHZS1_0_0_5_0_3_12", "CHZS1_0_0_5_0_1_2", "CHZS1_0_0_7_2721", "ZTYJ25_0_0_0_17", "ZTYJ25_0_0_0_22", "CHZS1_0_0_4_0_3_2_3", "CHZS1_0_0_7_2473", "YPLX2_0_0_4", "YFZS20_0_0_2_0_4_0_0_0", "WBNDyds13_0_0_4", "ZTYJ25_0_0_0_4", "YuYinZS4_0_0_4_0_0_0", "YFZS20_0_0_2_0_4_1_0_0", "YFZS20_0_0_2_0_8_2", "YFZS20_0_0_2_0_3_1", "YuYinZS4_0_0_5_0_1_0_0", "YFZS20_0_0_2_0_0_1_0", "YFZS20_0_0_3_13_28", "YPLX2_0_0_2_2", "CHZS1_0_0_3_0_3", "CHZS1_0_0_4_0_3_1_4", "CHZS1_0_0_7_1533", "CHZS1_0_0_4_0_3_0_1", "CHZS1_0_0_5_0_3_3", "CHZS1_0_0_7_3016", "YFZS20_0_0_2_0_0_1_1_7", "YFZS20_0_0_3_13_181", "WBNDyds13_0_1_4", "YFZS20_0_0_3_13_180", "ZTYJ25_0_0_0_20", "YPLX2_0_3_0", "YPZS22_0_0_0", "YPLX2_0_0_2", "CHZS1_0_0_4_0_3_2_5", "CHZS1_0_0_4_0_3_17_2", "CHZS1_0_0_7_922", "ZTYJ25_0_1_0_25", "WBNDyds13_0_1_2", "CHZS1_0_0_4_0_3_1_3", "CHZS1_0_0_7_3060", "YPLX2_0_0_2_0", "YuYinZS4_0_0_0_0_3_1_0", "YuYinZS4_0_0_0_0_1_20_1", "CHZS1_0_0_7_1758", "YuYinZS4_0_0_0_0_1_15_0", "YuYinZS4_0_0_0_0_2_4_0", "CHZS1_0_0_7_483", "YuYinZS4_0_0_0_0_2_25_0", "YuYinZS4_0_0_0_0_1_2_0", "YuYinZS4_0_0_0_0_2_20_0", "CHZS1_0_0_4_0_3_2_2", "CHZS1_0_0_4_0_3_11_1", "CHZS1_0_0_7_438", "YuYinZS4_0_0_0_0_0_15", "YuYinZS4_0_0_0_0_0_12", "YuYinZS4_0_0_0_0_1_0_1", "CHZS1_0_0_7_105", "YFZS20_0_0_2_0_0_1_0_2", "CHZS1_1_0_2_0", "CHZS1_0_0_4_0_3_0_0", "CHZS1_0_0_7_2756", "TLWJN12_0_1_0_3", "YFZS20_0_0_2_0_0_1_1_5", "YFZS20_0_0_2_0_0_1_1_1", "XXCL17_0_1_2", "YPGN16_0_10", "YFZS20_0_0_3_10_6", "ZTYJ25_0_1_0_7", "KYWJN6_0_4_0", "KWJN0_0_0_1_0", "YFZS20_0_0_3_1_42", "YFZS20_0_0_2_0_4_0_1_1", "YFZS20_0_0_2_0_0_1_1_6", "ZTYJ25_0_1_0_23", "WHZS5_0_0_25", "WHZS5_0_1_0_1_4", "WHZS5_1_0_0", "YuYongZS3_0_0_1", "ZTYJ25_0_0_0_7", "TLWJN12_0_1_0_1", "KWJN0_0_0_1_1", "YFZS20_0_0_2_0_0_1_1", "YFZS20_0_0_3_1_75", "WBNDyds13_0_0_2", "YFZS20_0_0_2_0_4_1_1_0", "WBNDyds13_0_1_3", "ZTYJ25_0_1_0_26", "YFZS20_0_0_0_0_0_3_0", "YPZS22_0_0_22", "YPZS22_0_1_0_1", "WHZS5_0_0_28", "WHZS5_0_1_0_1_10", "ZTYJ25_0_0_0_21", "YFZS20_0_0_2_0_0_1_0_0", "KYWJN6_0_3_0", "YinPinTZys21_0_0_1", "YFZS20_0_0_3_13_28_0", "YPGN16_0_4", "YFZS20_0_0_2_0_9_0_0_0", "WBNDyds13_0_1_1", "ZTYJ25_0_1_0_11", "YPGN16_0_14", "YFZS20_0_0_2_0_0_3_0", "ZTYJ25_0_1_0_29", "YFZS20_0_0_0_0_0_2", "YFZS20_0_0_0_0_2_1_1", "WHZS5_0_0_35", "WHZS5_0_1_1_0_0", "WHZS5_0_1_1_1_0", "WHZS5_1_0_1", "CHZS1_0_0_7_402", "CHZS1_0_0_7_1467", "CHZS1_0_0_7_2592", "YFZS20_0_0_2_0_9_1_1", "YPGN16_0_0", "ZMTP24_0_0_0", "YuYinZS4_0_0_1_0_0_0", "YuYinZS4_0_0_3_0_0", "YuYinZS4_0_0_7_0_0_0", "YuYinZS4_0_0_8_0_0_0", "YFZS20_0_0_1_0_0", "YFZS20_0_0_3_0_0", "YPZS22_1_0_0_0", "YPZS22_0_1_0_0", "YPZS22_0_2_0_0_0", "YPZS22_0_3_0_0_0", "YPZS22_0_4_0_0_0", "YuYongZS3_0_0_0", "YuYongZS3_0_1_0_0_0", "YuYongZS3_0_3_0_0", "YuYongZS3_1_0_0_0", "WHZS5_0_0_0", "WHZS5_0_1_0_0_0", "WHZS5_1_0_0_0", "YDWJN15_0_0_0_0", "KWJN0_0_0_0_0", "XZWJN14_0_0_0", "SWPZblm10_0_0", "CHZS1_0_0_7_2559", "CHZS1_0_0_4_0_3_3_0", "CHZS1_0_0_7_2460", "YuYinZS4_0_0_0_0_3_0_0", "YuYinZS4_0_0_0_0_3_26_0", "YuYinZS4_0_0_1_0_2", "YFZS20_0_0_0_0_0_0_0", "YuYongZS3_0_3_0_2", "CHZS1_0_0_7_2409", "YFZS20_0_0_0_0_0_0_1", "YFZS20_0_0_2_0_0_2_0", "YuYinZS4_0_0_0_0_2_32_0", "CHZS1_0_0_7_2676", "YFZS20_0_0_3_1_1", "ZTYJ25_0_2_0_0", "CHZS1_0_0_4_0_3_7_3", "CHZS1_0_0_4_0_3_12_0", "CHZS1_0_0_7_1640", "YFZS20_0_0_3_13_240", "YFZS20_0_0_3_5_0", "YFZS20_0_0_2_0_3_7_0", "YPGN16_0_16", "YFZS20_0_0_2_0_4_0_1_2", "YFZS20_0_0_2_0_0_2_1", "TLWJN12_0_1_2_1", "YuYinZS4_0_0_0_0_1_14_0", "YuYinZS4_0_0_0_0_1_1_0", "YuYinZS4_0_0_0_0_1_0_2", "CHZS1_0_0_3_0_6", "CHZS1_0_0_4_0_1_9", "CHZS1_0_0_7_7", "YuYinZS4_0_0_0_0_1_18_0", "CHZS1_0_0_7_181", "YFZS20_0_0_3_13_56", "CHZS1_0_0_4_0_3_14_0", "CHZS1_0_0_7_2165", "YPLX2_0_0_2_0_1", "YuYinZS4_0_0_0_0_3_6_0", "YuYinZS4_0_0_0_0_2_31_0", "CHZS1_0_0_7_866", "YuYinZS4_0_0_3_0_1", "YuYinZS4_0_0_4_0_1_0_0", "YFZS20_0_0_3_15_0", "CHZS1_0_0_4_0_3_10_0", "CHZS1_0_0_7_166", "ZDXS23_0_1", "YuYinZS4_0_0_0_0_1_20_0", "YuYinZS4_0_0_0_0_2_24_1", "YFZS20_0_0_3_2", "CHZS1_0_0_4_0_3_4_0", "CHZS1_0_0_4_0_3_7_4", "CHZS1_0_0_4_0_3_17_0", "CHZS1_0_0_7_595", "YuYinZS4_0_0_0_0_1_24_2", "CHZS1_0_0_7_134", "YuYinZS4_0_0_5_0_0", "KWJN0_0_0", "CHZS1_0_0_5_0_0_2", "CHZS1_0_0_5_0_2_4", "poster", "YFZS20_0_0_2_0_8_0", "KYWJN6_0_0_6", "YuYinZS4_0_0_0_0_1_11", "CHZS1_0_0_7_527", "mouth", "YFZS20_0_0_3_1_105", "CHZS1_0_0_7_1029", "CHZS1_0_0_7_1748", "ZTYJ25_0_1_0_19", "YPGN16_0_18", "draw", "leg", "YPLX2_0_0_2_0_7", "YuYinZS4_0_0_0_0_1_21_0", "CHZS1_0_0_7_3044", "YFZS20_0_0_0_0_6_0", "CHZS1_0_0_4_0_3_15_0", "three", "ZTYJ25_0_0_0_8", "YFZS20_0_0_3_1_13", "YFZS20_0_0_3_0_27", "YuYinZS4_0_0_0_0_4_6", "CHZS1_0_0_7_1237", "YPGN16_0_12", "YFZS20_0_0_3_12_11", "CHZS1_0_0_4_0_3_4_3", "CHZS1_0_0_7_2150", "YFZS20_0_0_2_0_0_3_1", "two", "KYWJN6_0_4_5", "parrot", "YFZS20_0_0_3_13_251", "they", "YFZS20_0_0_2_0_4_2", "YPLX2_0_0_4_2", "YFZS20_0_0_2_0_9_1_0", "YPLX2_0_0_2_0_0", "YuYinZS4_0_0_0_0_2_36_0", "CHZS1_0_0_4_0_3_5_1", "CHZS1_0_0_7_466", "SWPZblm10_0_5", "RWLX9_0_2", "YuYinZS4_0_0_0_0_1_0_0", "CHZS1_0_0_4_0_3_1_5", "CHZS1_0_0_4_0_3_2_4", "CHZS1_0_0_7_1541", "CHZS1_0_0_7_1054", "YPZS22_0_1_0_13", "KWJN0_0_0_1_6", "YuYinZS4_0_0_0_0_4_14", "CHZS1_0_0_7_2534", "YuYinZS4_0_0_0_0_2_11_0", "CHZS1_0_0_4_0_3_12_1", "CHZS1_0_0_7_327", "YuYinZS4_0_0_0_0_1_17_0", "YuYinZS4_0_0_0_0_2_21_0", "YuYinZS4_0_0_0_0_1_4_3", "CHZS1_0_0_7_2257", "ZTYJ25_0_0_0_18", "CHZS1_0_0_7_1053", "YFZS20_0_0_3_10_8", "ZTYJ25_0_0_0_12", "YFZS20_0_0_3_0_17", "TLWJN12_0_1_0_5", "CHZS1_0_0_4_0_1_0", "CHZS1_0_0_7_193", "CHZS1_0_0_7_1217", "YuYinZS4_0_0_0_0_3_7_0", "YuYinZS4_0_0_0_0_1_24_1", "CHZS1_0_0_7_2820", "ZTYJ25_0_1_0_15", "YFZS20_0_0_3_1_27", "CHZS1_1_0_2", "YFZS20_0_0_3_13", "YuYongZS3_0_3_0_13", "CHZS1_0_0_4_0_3_8_1", "CHZS1_0_0_7_2330", "YFZS20_0_0_3_1_48", "KYWJN6_0_4_1", "YuYinZS4_0_0_0_0_1_3_0", "CHZS1_0_0_7_770", "YuYinZS4_0_0_2_0", "YFZS20_0_0_3_13_59_0", "KYWJN6_0_4_6", "YuYinZS4_0_0_0_0_1_0_5", "CHZS1_0_0_4_0_3_6_1", "CHZS1_0_0_7_281", "YuYinZS4_0_0_0_0_2_25_1", "YFZS20_0_0_0_0_2_1_1_0", "YPLX2_0_0_3_0", "CHZS1_0_0_7_2037", "CHZS1_0_0_7_1854", "CHZS1_0_0_4_0_3_0_2", "CHZS1_0_0_7_2934", "ZTYJ25_0_1_0_22", "HTSXD7_0_2", "CHZS1_0_0_7_1505", "CHZS1_0_0_7_1962", "CHZS1_0_0_4_0_3_16_0", "CHZS1_0_0_4_0_4", "CHZS1_0_0_7_3145", "CHZS1_0_0_7_2295", "CHZS1_0_0_4_0_3_7_2", "CHZS1_0_0_7_351", "CHZS1_0_0_4_0_1_1", "CHZS1_0_0_7_1485", "CHZS1_0_0_7_1590", "CHZS1_0_0_7_299", "CHZS1_0_0_4_0_3_6_0", "CHZS1_0_0_7_8096", "YPSL18_0_1", "YPLX2_0_0_1_0", "ZMTP24_0_0_20", "YuYinZS4_0_0_0_0_0_19", "ZDXS23_0_0", "ZMTP24_0_0_7", "YuYinZS4_0_0_0_0_0_6", "CHZS1_0_0_4_0_3_7_0", "CHZS1_0_0_7_869", "YuYinZS4_0_0_3_0", "YFZS20_0_0_2_0_0_0_1", "YFZS20_0_0_3_1_33", "YFZS20_0_0_3_1_44", "CHZS1_0_0_7_1370", "YPLX2_0_0_1", "ZMTP24_0_0_1", "YuYinZS4_0_0_0_0_0_0", "CHZS1_0_0_7_387", "YuYinZS4_0_0_0_0_4_9", "CHZS1_0_0_7_2012", "YuYinZS4_0_0_0_0_1_8_0", "CHZS1_0_0_4_0_3_9_1", "CHZS1_0_0_7_1698", "CHZS1_0_0_7_2659", "CHZS1_0_0_7_2657", "ZMTP24_0_0_6", "YuYinZS4_0_0_0_0_0_5", "CHZS1_0_0_4_0_3_0_4", "CHZS1_0_0_7_2976", "CHZS1_0_0_7_2826", "CHZS1_0_0_7_2917", "CHZS1_0_0_4_0_3_7_1", "CHZS1_0_0_4_0_3_11_4", "CHZS1_0_0_7_1125", "CHZS1_0_0_7_1959", "CHZS1_0_0_7_1816", "ZTYJ25_0_0_0", "YuYinZS4_0_0_5_0_1", "milk", "YPGN16_0_11", "YFZS20_0_0_2_0_0_2", "CHZS1_0_0_7_2798", "ZTYJ25_0_1_0_14", "YFZS20_0_0_3_13_122", "YFZS20_0_0_2_0_4_2_1_0", "banana", "CHZS1_0_0_7_1732", "YuYinZS4_0_0_0_0_0_14", "ZTYJ25_0_2_0_2", "YFZS20_0_0_0_0_2_0_0", "YFZS20_0_0_3_13_43_0", "YFZS20_0_0_2_0_4_2_0_2", "YFZS20_0_0_2_0_0_1", "song", "YuYinZS4_0_0_4_0_1_1_0", "YFZS20_0_0_3_13_138", "YuYinZS4_0_0_0_0_0_4", "YuYinZS4_0_0_0_0_2_9_0", "CHZS1_0_0_7_1809", "YFZS20_0_0_3_13_185", "ZMTP24_0_0_9", "ZMTP24_0_1_1", "ZMTP24_0_1_0", "ZMTP24_0_1_3", "YuYinZS4_0_0_0_0_0_8", "school", "get up", "YFZS20_0_0_3_13_122_1", "YPLX2_0_0_3_1", "CHZS1_0_0_4_0_2_2", "CHZS1_0_0_7_1489", "CHZS1_0_0_7_1862", "CHZS1_0_0_7_151", "CHZS1_0_0_7_1165", "CHZS1_0_0_7_1935", "CHZS1_0_0_7_2814", "YuYinZS4_0_0_0_0_0_22", "ZMTP24_0_0_14", "YuYinZS4_0_0_0_0_0_13", "YPZS22_0_0_2", "CHZS1_0_0_7_1270", "CHZS1_0_0_7_1948", "CHZS1_0_0_7_3039", "YFZS20_0_0_3_15_4", "TLWJN12_0_5_0_4", "SWPZblm10_0_1_4", "YuYinZS4_0_0_0_0_1_24_0", "YuYinZS4_0_0_0_0_1_14", "YuYinZS4_0_0_0_0_2_19_0", "CHZS1_0_0_7_3023", "YuYinZS4_0_0_0_0_1_22_0", "YuYinZS4_0_0_0_0_2_41_2", "CHZS1_0_0_4_0_1_11", "CHZS1_0_0_7_99", "CHZS1_0_0_7_266", "YFZS20_0_0_2_0_4_1", "CHZS1_0_0_7_3019", "YFZS20_0_0_3_13_0_0", "YFZS20_0_0_3_1_0", "YuYongZS3_0_4_0_1", "YuYinZS4_0_0_0_0_2_12_0", "YuYinZS4_0_0_0_0_1_9_0", "CHZS1_0_0_7_3097", "YuYinZS4_0_0_0_0_3_31_0", "CHZS1_0_0_7_1995", "YFZS20_0_0_3_1", "YuYongZS3_0_2_0_1", "YuYongZS3_0_3_0_1", "CHZS1_0_0_7_334", "CHZS1_0_0_7_2804", "CHZS1_0_0_4_0_3_15_4", "CHZS1_0_0_7_2532", "YFZS20_0_0_3_1_79", "ZTYJ25_0_1_0_9", "CHZS1_0_0_7_211", "CHZS1_0_0_7_1269", "YPLX2_0_0_6_1", "YPLX2_0_2_4", "KYWJN6_0_0_4", "CHZS1_0_0_7_1295", "CHZS1_0_0_7_1361", "CHZS1_0_0_7_1281", "CHZS1_0_0_7_2736", "CHZS1_0_0_7_1039", "CHZS1_0_0_7_2919", "CHZS1_0_0_7_437", "CHZS1_0_0_7_1342", "CHZS1_0_0_7_2294", "CHZS1_0_0_7_2918", "CHZS1_0_0_7_300", "YFZS20_0_0_3_1_113", "ZTYJ25_0_1_0_5", "CHZS1_0_0_7_2660", "CHZS1_0_0_7_444", "ZTYJ25_0_0_0_15", "CHZS1_0_0_4_0_3_15_2", "YFZS20_0_0_3_7_6", "CHZS1_0_0_7_1482", "YFZS20_0_0_2_0_4_4", "CHZS1_0_0_4_0_3_8_2", "CHZS1_0_0_7_556", "CHZS1_0_0_4_0_3_15_5", "CHZS1_0_0_7_2178", "CHZS1_0_0_7_2279", "CHZS1_0_0_7_1298", "CHZS1_0_0_7_1274", "YFZS20_0_0_2_0_8_6", "TLWJN12_0_4_0_13", "CHZS1_0_0_7_1273", "CHZS1_0_0_7_2430", "CHZS1_0_0_7_1958", "YFZS20_0_0_3_5_1", "CHZS1_0_0_7_87", "CHZS1_0_0_7_506", "ZTYJ25_0_1_0_8", "YFZS20_0_0_2_0_4_4_1_1", "YFZS20_0_0_3_13_232", "CHZS1_0_0_7_307", "CHZS1_0_0_7_1941", "YFZS20_0_0_3_1_36", "CHZS1_0_0_7_1052", "shirt", "CHZS1_0_0_7_1123", "YPGN16_0_9", "CHZS1_0_0_7_1211", "CHZS1_0_0_7_1899", "CHZS1_0_0_7_1523", "YFZS20_0_0_2_0_0_1_1_2", "YFZS20_0_0_2_0_0_1_1_3", "CHZS1_0_0_7_2835", "CHZS1_0_0_7_359", "CHZS1_0_0_7_1568", "YFZS20_0_0_0_0_1_4_0", "YFZS20_0_0_3_1_8", "WHZS5_0_0_6", "WHZS5_0_1_0_1_13", "YFZS20_0_0_3_0_13", "monkey", "YPLX2_0_0_3", "CHZS1_0_0_7_863", "YPZS22_1_0_1", "CHZS1_0_0_7_899", "YuYinZS4_0_0_0_0_1_24_3", "CHZS1_0_0_7_121");
-        List<String> sectionTagIds = Lists.newArrayList("5f96c08ab9c81600013a900c", "5f96c08ab9c81600013a9008", "5f96c08ab9c81600013a8ff7", "5f96c08ab9c81600013a9009", "5f96c08ab9c81600013a900a", "5f96c08ab9c81600013a900b", "5f96c08eb9c81600013a9567", "5f96c08eb9c81600013a95c1", "5f96c08eb9c81600013a962d", "5f96c08eb9c81600013a9663");
-        List<String> gradeTagIds = Lists.newArrayList("5f96c08eb9c81600013a9783", "5f96c08eb9c81600013a959d", "5f96c08eb9c81600013a97cb", "5f96c08eb9c81600013a9662", "5f96c08ab9c81600013a8ffd", "5f96c08ab9c81600013a8ffe", "5f96c08ab9c81600013a9000", "5f96c08ab9c81600013a9001", "5f96c08ab9c81600013a9004", "5f96c08ab9c81600013a9005");
-
-        for (int i = 0; i < request.getCount(); i++) {
-            int id = Math.abs(new Random().nextInt());
-            KnowledgeGraphMarkResultEntity entity = new KnowledgeGraphMarkResultEntity();
-            entity.setResourceId("id_" + id);
-            entity.setResourceType(getRandomElement(resourceTypes));
-            entity.setTagIdList(getRandomElements(tagIds, 10));
-            entity.setResourceSubtype(entity.getResourceType());
-            entity.setSectionTagIds(getRandomElements(sectionTagIds, 3));
-            entity.setGradeTagIds(getRandomElements(gradeTagIds, 3));
-            entity.setSort(id);
-            entity.setCreateAtTime(new Date().getTime());
-            entity.setUpdateAtTime(new Date().getTime());
-            insert(entity);
+    public KnowledgeGraphBulkInsertResult batchInsert(KnowledgeGraphInsertRequest request) {
+        // 生成线程里才抛出的参数错误只能表现为500，提前校验
+        if (request.getTagCount() <= 0 || request.getTagCount() > KnowledgeGraphDataGenerator.TAG_IDS.length) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "tagCount must be in [1, " + KnowledgeGraphDataGenerator.TAG_IDS.length + "]");
+        }
+        KnowledgeGraphBulkIngester.Session session = bulkIngester.open(index_name, request);
+        KnowledgeGraphBulkInsertResult result;
+        try {
+            dataGenerator.generate(request, session::add);
+        } finally {
+            // 生成失败也要结束会话，恢复refresh并释放重建索引的互斥
+            result = session.finish();
         }
+        // 生成的数据覆盖几乎所有标签，直接清空缓存
+        queryCache.invalidateAll();
+        return result;
     }
 
     public static <T> T getRandomElement(List<T> list) {
-        // 打乱列表顺序
-        List<T> shuffledList = new ArrayList<>(list);
-        Collections.shuffle(shuffledList);
-        return shuffledList.get(0);
+        return list.get(ThreadLocalRandom.current().nextInt(list.size()));
     }
 
     public static <T> List<T> getRandomElements(List<T> list, int count) {
         if (list.size() < count) {
             throw new IllegalArgumentException("List size is smaller than the requested count");
         }
-
-        // 打乱列表顺序
-        List<T> shuffledList = new ArrayList<>(list);
-        Collections.shuffle(shuffledList);
-
-        // 返回前 count 个元素
-        return shuffledList.subList(0, count);
+        // Floyd算法抽取下标，不复制、不打乱原列表
+        int[] indexes = KnowledgeGraphTagSampler.uniform(list.size()).sample(new SplittableRandom(ThreadLocalRandom.current().nextLong()), count);
+        List<T> result = new ArrayList<>(count);
+        for (int index : indexes) {
+            result.add(list.get(index));
+        }
+        return result;
     }
 
-    public String insert(KnowledgeGraphMarkResultEntity esEntity) {
-        final String id = esEntity.getResourceType() + "_" + esEntity.getResourceId();
+    // 文档ID：资源类型_资源ID
+    static String docId(KnowledgeGraphMarkResultEntity esEntity) {
+        return esEntity.getResourceType() + "_" + esEntity.getResourceId();
+    }
 
-        try {
-            esEntity.setCreateAtTime(new Date().getTime());
-            esEntity.setUpdateAtTime(new Date().getTime());
-            IndexRequest<KnowledgeGraphMarkResultEntity> indexRequest = IndexRequest.of(e -> e
-                    .index(index_name)
-                    .id(id)
-                    .document(esEntity)
-                    .refresh(Refresh.True)
-                    .opType(OpType.Index) // 若主键重复，覆盖原有数据
-            );
-            client.index(indexRequest);
-        } catch (Exception e) {
-            log.info("KnowledgeGraphService#insert error.", e);
-        }
-        return null;
+    /**
+     * 写入单个文档：进入写缓冲，与其他写入合并为_bulk，返回的future在写入（默认及刷新可见）后完成
+     */
+    public CompletableFuture<KnowledgeGraphWriteResult> insert(KnowledgeGraphMarkResultEntity esEntity) {
+        long now = System.currentTimeMillis();
+        esEntity.setCreateAtTime(now);
+        esEntity.setUpdateAtTime(now);
+        // 本地索引按updateTime增量同步，未传时取当前时间
+        if (esEntity.getUpdateTime() == 0) {
+            esEntity.setUpdateTime(esEntity.getUpdateAtTime());
+        }
+        return writeBuffer.write(esEntity);
     }
 }
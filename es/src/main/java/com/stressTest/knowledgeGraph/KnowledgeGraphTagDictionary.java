@@ -0,0 +1,108 @@
+package com.stressTest.knowledgeGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 标签字典：每个标签映射为从0开始的连续int ID，进程内唯一，名称实例全局共享。
+ * 内存中的标签列表以int[]（KnowledgeGraphTagIdList）或BitSet存放，只在API边界还原为字符串。
+ * 查询条件只做lookup；写入请求（/insert）和ES返回的数据会新增标签，ID不回收，
+ * 因此字典有上限（stressTest.tagDictionary.maxSize），满了以后新标签被拒绝，/insert返回400。
+ */
+public final class KnowledgeGraphTagDictionary {
+
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[1024];
+    private static int size;
+    private static volatile int maxSize = Integer.MAX_VALUE;
+
+    private KnowledgeGraphTagDictionary() {
+    }
+
+    static void setMaxSize(int value) {
+        maxSize = value;
+    }
+
+    /**
+     * 返回标签的ID，不存在时分配新ID；字典已满时抛出IllegalArgumentException
+     */
+    public static int intern(String tag) {
+        Integer id = IDS.get(tag);
+        if (id != null) {
+            return id;
+        }
+        synchronized (KnowledgeGraphTagDictionary.class) {
+            id = IDS.get(tag);
+            if (id != null) {
+                return id;
+            }
+            if (size >= maxSize) {
+                throw new IllegalArgumentException("tag dictionary is full (" + maxSize + " tags), unknown tag rejected: " + tag);
+            }
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = tag;
+            // volatile写保证读到ID的线程也能读到名称
+            names = current;
+            IDS.put(tag, size);
+            return size++;
+        }
+    }
+
+    public static int[] intern(Collection<String> tags) {
+        int[] result = new int[tags.size()];
+        int i = 0;
+        for (String tag : tags) {
+            if (tag != null) {
+                result[i++] = intern(tag);
+            }
+        }
+        return i == result.length ? result : Arrays.copyOf(result, i);
+    }
+
+    /**
+     * 返回标签的ID，不存在时返回-1
+     */
+    public static int lookup(String tag) {
+        Integer id = tag == null ? null : IDS.get(tag);
+        return id == null ? -1 : id;
+    }
+
+    public static String name(int id) {
+        return names[id];
+    }
+
+    public static int size() {
+        return IDS.size();
+    }
+
+    /**
+     * 已知标签的集合，未知标签不可能命中任何数据，直接忽略
+     */
+    public static BitSet toBitSet(Collection<String> tags) {
+        BitSet result = new BitSet();
+        if (tags != null) {
+            for (String tag : tags) {
+                int id = lookup(tag);
+                if (id >= 0) {
+                    result.set(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    public static List<String> names(BitSet ids) {
+        List<String> result = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            result.add(name(id));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+package com.stressTest.knowledgeGraph;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 以标签ID数组存放的只读标签列表，对外表现为List<String>，序列化结果与普通列表相同
+ */
+public final class KnowledgeGraphTagIdList extends AbstractList<String> implements RandomAccess, Serializable {
+
+    private static final KnowledgeGraphTagIdList EMPTY = new KnowledgeGraphTagIdList(new int[0]);
+
+    private final int[] ids;
+
+    private KnowledgeGraphTagIdList(int[] ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * ids归该列表所有，调用方之后不能再修改
+     */
+    public static KnowledgeGraphTagIdList wrap(int[] ids) {
+        return ids.length == 0 ? EMPTY : new KnowledgeGraphTagIdList(ids);
+    }
+
+    public static KnowledgeGraphTagIdList of(Collection<String> tags) {
+        if (tags instanceof KnowledgeGraphTagIdList) {
+            return (KnowledgeGraphTagIdList) tags;
+        }
+        return wrap(KnowledgeGraphTagDictionary.intern(tags));
+    }
+
+    @Override
+    public String get(int index) {
+        return KnowledgeGraphTagDictionary.name(ids[index]);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    public int id(int index) {
+        return ids[index];
+    }
+
+    public int[] toIdArray() {
+        return ids.clone();
+    }
+
+    public BitSet toBitSet() {
+        BitSet result = new BitSet();
+        for (int id : ids) {
+            result.set(id);
+        }
+        return result;
+    }
+
+    public boolean containsAny(BitSet tags) {
+        for (int id : ids) {
+            if (tags.get(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ID只在本进程内有效，Java序列化时还原为字符串
+    private Object writeReplace() {
+        return new ArrayList<>(this);
+    }
+
+    /**
+     * 反序列化时直接转换为ID数组，不保留中间的字符串列表
+     */
+    public static class Deserializer extends StdDeserializer<List<String>> {
+
+        public Deserializer() {
+            super(List.class);
+        }
+
+        @Override
+        public List<String> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartArrayToken()) {
+                // 通常直接抛出异常；注册了DeserializationProblemHandler时返回其给出的List
+                @SuppressWarnings("unchecked")
+                List<String> recovered = (List<String>) ctxt.handleUnexpectedToken(List.class, p);
+                return recovered;
+            }
+            int[] ids = new int[8];
+            int size = 0;
+            JsonToken token;
+            while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = KnowledgeGraphTagDictionary.intern(p.getText());
+            }
+            return wrap(size == ids.length ? ids : Arrays.copyOf(ids, size));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.stressTest.knowledgeGraph;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 从n个元素中不放回地抽取k个下标，不复制、不打乱原列表
+ */
+public abstract class KnowledgeGraphTagSampler {
+
+    protected final int n;
+
+    protected KnowledgeGraphTagSampler(int n) {
+        this.n = n;
+    }
+
+    public abstract int[] sample(SplittableRandom random, int k);
+
+    public int size() {
+        return n;
+    }
+
+    public static KnowledgeGraphTagSampler uniform(int n) {
+        return new Uniform(n);
+    }
+
+    public static KnowledgeGraphTagSampler zipf(int n, double exponent) {
+        return new Zipf(n, exponent);
+    }
+
+    public static KnowledgeGraphTagSampler of(String distribution, int n, double zipfExponent) {
+        if ("zipf".equalsIgnoreCase(distribution)) {
+            return zipf(n, zipfExponent);
+        }
+        return uniform(n);
+    }
+
+    protected void checkCount(int k) {
+        if (k > n) {
+            throw new IllegalArgumentException("List size is smaller than the requested count");
+        }
+    }
+
+    protected static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 均匀分布，Floyd算法：k次随机数即可得到k个不重复下标
+     */
+    static class Uniform extends KnowledgeGraphTagSampler {
+
+        Uniform(int n) {
+            super(n);
+        }
+
+        @Override
+        public int[] sample(SplittableRandom random, int k) {
+            checkCount(k);
+            return floyd(random, n, k);
+        }
+    }
+
+    /**
+     * Floyd算法：从[0, n)中均匀抽取k个不重复下标
+     */
+    protected static int[] floyd(SplittableRandom random, int n, int k) {
+        int[] result = new int[k];
+        int size = 0;
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            if (contains(result, size, t)) {
+                t = j;
+            }
+            result[size++] = t;
+        }
+        return result;
+    }
+
+    /**
+     * Zipf分布：下标越小越热，按累积概率二分查找，重复则重抽
+     */
+    static class Zipf extends KnowledgeGraphTagSampler {
+
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            super(n);
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        @Override
+        public int[] sample(SplittableRandom random, int k) {
+            checkCount(k);
+            int[] result = new int[k];
+            int size = 0;
+            // 重复过多（k接近n或分布极度倾斜）时退化为均匀补齐，避免死循环
+            int attempts = k * 32;
+            while (size < k && attempts-- > 0) {
+                int index = next(random);
+                if (!contains(result, size, index)) {
+                    result[size++] = index;
+                }
+            }
+            if (size < k) {
+                // 在未选中的下标中均匀补齐，顺序补齐会把最热的标签全部塞进来
+                int[] chosen = Arrays.copyOf(result, size);
+                Arrays.sort(chosen);
+                for (int rank : floyd(random, n - size, k - size)) {
+                    result[size++] = unchosen(chosen, rank);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 第rank个（从0开始）不在chosen（已排序）中的下标
+         */
+        private static int unchosen(int[] chosen, int rank) {
+            int index = rank;
+            for (int c : chosen) {
+                if (c > index) {
+                    break;
+                }
+                index++;
+            }
+            return index;
+        }
+
+        private int next(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return Math.min(index, n - 1);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.elasticsearch.core.search.TrackHits;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.stressTest.util.PageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 总数统计方式。精确统计需要访问所有命中文档，大标签集合上代价很高：
+ * capped用track_total_hits=N在N处停止计数，estimated按归一化的过滤条件缓存一次精确总数、TTL内不再统计，disabled不统计。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphTotalHitsPolicy {
+
+    public static final String EXACT = "exact";
+    public static final String CAPPED = "capped";
+    public static final String ESTIMATED = "estimated";
+    public static final String DISABLED = "disabled";
+
+    /**
+     * 默认与ES默认行为一致：统计到10000为止
+     */
+    @Value("${stressTest.totalHits.defaultMode:capped}")
+    private String defaultMode;
+    @Value("${stressTest.totalHits.cap:10000}")
+    private int defaultCap;
+    @Value("${stressTest.totalHits.estimateTtlSeconds:60}")
+    private long estimateTtlSeconds;
+    @Value("${stressTest.totalHits.estimateMaxSize:10000}")
+    private long estimateMaxSize;
+
+    private Cache<KnowledgeGraphQueryKey, Long> estimates;
+
+    @PostConstruct
+    public void init() {
+        estimates = CacheBuilder.newBuilder()
+                .maximumSize(estimateMaxSize)
+                .expireAfterWrite(estimateTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public String modeOf(KnowledgeGraphQueryRequest request) {
+        String mode = StringUtils.hasText(request.getTotalHits()) ? request.getTotalHits() : defaultMode;
+        for (String known : new String[]{EXACT, CAPPED, ESTIMATED, DISABLED}) {
+            if (known.equalsIgnoreCase(mode)) {
+                return known;
+            }
+        }
+        log.warn("KnowledgeGraphTotalHitsPolicy#modeOf unknown mode:{}, fallback to {}.", mode, CAPPED);
+        return CAPPED;
+    }
+
+    /**
+     * estimated模式下缓存的总数，其他模式或未命中时为空
+     */
+    public Long estimate(KnowledgeGraphQueryRequest request, String mode) {
+        return ESTIMATED.equals(mode) ? estimates.getIfPresent(KnowledgeGraphQueryKey.filterOf(request)) : null;
+    }
+
+    /**
+     * 本次查询的track_total_hits；estimated未命中时精确统计一次
+     */
+    public TrackHits trackHits(KnowledgeGraphQueryRequest request, String mode, Long estimate) {
+        switch (mode) {
+            case EXACT:
+                return TrackHits.of(t -> t.enabled(true));
+            case ESTIMATED:
+                return TrackHits.of(t -> t.enabled(estimate == null));
+            case DISABLED:
+                return TrackHits.of(t -> t.enabled(false));
+            default:
+                int cap = capOf(request);
+                return TrackHits.of(t -> t.count(cap));
+        }
+    }
+
+    /**
+     * 已知精确总数（本地索引）时按模式填写总数：capped超过上限时为上限值+gte，disabled不返回总数
+     */
+    public void applyExact(KnowledgeGraphQueryRequest request, String mode, long total,
+                           PageResult<KnowledgeGraphMarkResultResponse> pageResult) {
+        switch (mode) {
+            case DISABLED:
+                pageResult.setTotalSize(null);
+                pageResult.setTotalRelation(null);
+                return;
+            case CAPPED:
+                int cap = capOf(request);
+                pageResult.setTotalSize(BigInteger.valueOf(Math.min(total, cap)));
+                pageResult.setTotalRelation(total > cap ? PageResult.RELATION_GTE : PageResult.RELATION_EQ);
+                return;
+            default:
+                pageResult.setTotalSize(BigInteger.valueOf(total));
+                pageResult.setTotalRelation(PageResult.RELATION_EQ);
+        }
+    }
+
+    private int capOf(KnowledgeGraphQueryRequest request) {
+        return request.getTotalHitsCap() != null && request.getTotalHitsCap() > 0 ? request.getTotalHitsCap() : defaultCap;
+    }
+
+    /**
+     * estimated模式：命中时用估计值作为总数，未命中时缓存本次的精确总数
+     */
+    public PageResult<KnowledgeGraphMarkResultResponse> complete(KnowledgeGraphQueryRequest request, String mode, Long estimate,
+                                                                 PageResult<KnowledgeGraphMarkResultResponse> pageResult) {
+        if (!ESTIMATED.equals(mode)) {
+            return pageResult;
+        }
+        if (estimate != null) {
+            pageResult.setTotalSize(BigInteger.valueOf(estimate));
+            pageResult.setTotalRelation(PageResult.RELATION_ESTIMATED);
+        } else if (pageResult.getTotalSize() != null && PageResult.RELATION_EQ.equals(pageResult.getTotalRelation())) {
+            estimates.put(KnowledgeGraphQueryKey.filterOf(request), pageResult.getTotalSize().longValue());
+        }
+        return pageResult;
+    }
+
+    static String relationOf(TotalHitsRelation relation) {
+        return relation == TotalHitsRelation.Gte ? PageResult.RELATION_GTE : PageResult.RELATION_EQ;
+    }
+}
@@ -0,0 +1,449 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.get.GetResult;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetOperation;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单文档写入的异步缓冲：按文档ID合并（窗口内后写覆盖先写），按条数或时间间隔通过_bulk写入，
+ * 默认refresh=wait_for，等待下一次周期刷新而不是每次写入强制刷新。
+ * 同一文档ID在途时，后续写入留在缓冲中等下一批，保证同一文档按提交顺序落盘。
+ */
+@Component
+@Slf4j
+public class KnowledgeGraphWriteBuffer {
+
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    @Resource
+    private ElasticsearchClient client;
+    @Resource
+    private KnowledgeGraphQueryCache queryCache;
+    @Resource
+    private KnowledgeGraphRoutingStrategy routingStrategy;
+    @Resource
+    private KnowledgeGraphBulkIngester bulkIngester;
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Value("${stressTest.write.maxBatchSize:500}")
+    private int maxBatchSize;
+    @Value("${stressTest.write.flushIntervalMs:50}")
+    private long flushIntervalMs;
+    /**
+     * 并发在途的bulk请求数，满时阻塞写入方
+     */
+    @Value("${stressTest.write.concurrency:4}")
+    private int concurrency;
+    @Value("${stressTest.write.maxRetries:3}")
+    private int maxRetries;
+    /**
+     * wait_for：写入在下一次刷新后可见时返回；false：不等待刷新；true：强制刷新（原行为）
+     */
+    @Value("${stressTest.write.refresh:wait_for}")
+    private String refresh;
+
+    private final Object lock = new Object();
+    private LinkedHashMap<String, Pending> buffer = new LinkedHashMap<>();
+    /**
+     * 在途bulk中的文档ID
+     */
+    private final Set<String> inFlightIds = new HashSet<>();
+
+    /**
+     * 重建索引期间同时写入的目标索引，为空时不镜像
+     */
+    private volatile String mirrorIndex;
+    private final AtomicLong mirrorFailures = new AtomicLong();
+
+    private Semaphore inFlight;
+    private int permits;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+    private DistributionSummary batchSizes;
+    private Counter coalesced;
+    private Timer writeLatency;
+
+    @PostConstruct
+    public void init() {
+        permits = Math.max(1, concurrency);
+        inFlight = new Semaphore(permits);
+        executor = Executors.newFixedThreadPool(Math.max(1, concurrency),
+                new ThreadFactoryBuilder().setNameFormat("kg-write-bulk-%d").setDaemon(true).build());
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("kg-write-flush").setDaemon(true).build());
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        batchSizes = DistributionSummary.builder("kg.write.batch.size").register(meterRegistry);
+        coalesced = Counter.builder("kg.write.coalesced").register(meterRegistry);
+        writeLatency = Timer.builder("kg.write.latency").publishPercentileHistogram().register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdown();
+        // 在途的文档会被留在缓冲中，等它们完成后再刷一次
+        flush();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Pending> rest = swap();
+        if (!rest.isEmpty()) {
+            execute(rest);
+        }
+    }
+
+    public CompletableFuture<KnowledgeGraphWriteResult> write(KnowledgeGraphMarkResultEntity entity) {
+        routingStrategy.checkWritable();
+        String id = KnowledgeGraphService.docId(entity);
+        CompletableFuture<KnowledgeGraphWriteResult> future = new CompletableFuture<>();
+        List<Pending> batch = null;
+        synchronized (lock) {
+            Pending pending = buffer.get(id);
+            if (pending == null) {
+                buffer.put(id, new Pending(id, entity, future));
+            } else {
+                pending.supersede(entity, future);
+                coalesced.increment();
+            }
+            if (buffer.size() >= maxBatchSize) {
+                batch = swap();
+            }
+        }
+        if (batch != null && !batch.isEmpty()) {
+            submit(batch);
+        }
+        return future;
+    }
+
+    /**
+     * 开始把成功的写入镜像到index（op_type=index，不等待刷新）；返回前等待开始镜像前发出的bulk完成
+     */
+    public void startMirror(String index) {
+        mirrorFailures.set(0);
+        mirrorIndex = index;
+        inFlight.acquireUninterruptibly(permits);
+        inFlight.release(permits);
+    }
+
+    public void stopMirror() {
+        mirrorIndex = null;
+    }
+
+    /**
+     * 镜像期间写入失败的文档数，非0时新索引缺少这些写入
+     */
+    public long mirrorFailures() {
+        return mirrorFailures.get();
+    }
+
+    private void flush() {
+        try {
+            List<Pending> batch = swap();
+            if (!batch.isEmpty()) {
+                submit(batch);
+            }
+        } catch (RuntimeException e) {
+            log.error("KnowledgeGraphWriteBuffer#flush error.", e);
+        }
+    }
+
+    /**
+     * 取出缓冲中不在途的文档，最多maxBatchSize条
+     */
+    private List<Pending> swap() {
+        synchronized (lock) {
+            List<Pending> batch = new ArrayList<>(Math.min(buffer.size(), maxBatchSize));
+            Iterator<Map.Entry<String, Pending>> iterator = buffer.entrySet().iterator();
+            while (iterator.hasNext() && batch.size() < maxBatchSize) {
+                Map.Entry<String, Pending> entry = iterator.next();
+                if (inFlightIds.add(entry.getKey())) {
+                    batch.add(entry.getValue());
+                    iterator.remove();
+                }
+            }
+            return batch;
+        }
+    }
+
+    private void submit(List<Pending> batch) {
+        // 背压：在途bulk请求已满时阻塞
+        inFlight.acquireUninterruptibly();
+        try {
+            executor.execute(() -> {
+                try {
+                    execute(batch);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            fail(batch, e);
+        }
+    }
+
+    private void execute(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        Map<String, List<String>> previousTags = previousTags(batch);
+        List<Pending> pending = batch;
+        try {
+            for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                if (attempt > 0) {
+                    if (attempt > maxRetries) {
+                        fail(pending, new IOException("bulk retries exhausted"));
+                        return;
+                    }
+                    sleepQuietly(RETRY_BACKOFF_MS << (attempt - 1));
+                }
+                pending = bulk(pending, previousTags);
+            }
+        } catch (RuntimeException e) {
+            log.error("KnowledgeGraphWriteBuffer#execute error, docs={}.", pending.size(), e);
+            fail(pending, e);
+        } finally {
+            synchronized (lock) {
+                for (Pending p : batch) {
+                    inFlightIds.remove(p.id);
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入前各文档在ES中的标签，写入后连同新标签一起失效；缓存关闭时为空，查询失败时为null
+     */
+    private Map<String, List<String>> previousTags(List<Pending> batch) {
+        Map<String, List<String>> result = new HashMap<>();
+        if (!queryCache.isEnabled()) {
+            return result;
+        }
+        List<MultiGetOperation> docs = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            docs.add(MultiGetOperation.of(d -> d.id(pending.id).routing(routingStrategy.routingOf(pending.entity))));
+        }
+        try {
+            MgetResponse<KnowledgeGraphMarkResultEntity> response = client.mget(m -> m
+                    .index(KnowledgeGraphService.index_name)
+                    .docs(docs)
+                    .sourceIncludes("tagIdList"), KnowledgeGraphMarkResultEntity.class);
+            for (MultiGetResponseItem<KnowledgeGraphMarkResultEntity> item : response.docs()) {
+                if (!item.isResult()) {
+                    return null;
+                }
+                GetResult<KnowledgeGraphMarkResultEntity> doc = item.result();
+                if (doc.found() && doc.source() != null && doc.source().getTagIdList() != null) {
+                    result.put(doc.id(), doc.source().getTagIdList());
+                }
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            log.warn("KnowledgeGraphWriteBuffer#previousTags error, docs={}.", batch.size(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 发送一次bulk请求，返回需要重试的文档（429及网络异常）
+     *
+     * @param previousTags 写入前的标签，为null时无法确定受影响的查询，清空缓存
+     */
+    private List<Pending> bulk(List<Pending> batch, Map<String, List<String>> previousTags) {
+        String mirror = mirrorIndex;
+        BulkRequest.Builder builder = new BulkRequest.Builder();
+        builder.refresh(refreshPolicy());
+        for (Pending pending : batch) {
+            builder.operations(BulkOperation.of(o -> o
+                    .index(i -> i
+                            .index(KnowledgeGraphService.index_name)
+                            .id(pending.id)
+                            .routing(routingStrategy.routingOf(pending.entity))
+                            .document(pending.entity))));
+        }
+        BulkResponse response;
+        try {
+            response = client.bulk(builder.build());
+        } catch (IOException e) {
+            log.warn("KnowledgeGraphWriteBuffer#bulk error, docs={}.", batch.size(), e);
+            return batch;
+        } catch (ElasticsearchException e) {
+            // 整个请求429时与单条429一样退避重试，其他状态直接失败
+            if (e.status() == 429) {
+                return batch;
+            }
+            log.warn("KnowledgeGraphWriteBuffer#bulk request error, docs={}, status={}.", batch.size(), e.status(), e);
+            fail(batch, e);
+            return new ArrayList<>();
+        }
+        List<Pending> retry = new ArrayList<>();
+        List<Pending> written = new ArrayList<>();
+        Set<String> changedTags = new HashSet<>();
+        boolean changed = false;
+        List<BulkResponseItem> items = response.items();
+        for (int i = 0; i < items.size(); i++) {
+            BulkResponseItem item = items.get(i);
+            Pending pending = batch.get(i);
+            if (item.error() == null) {
+                changed = true;
+                // 被覆盖的写入、文档原有的标签对应的查询结果同样变化
+                changedTags.addAll(pending.tags);
+                if (previousTags != null) {
+                    changedTags.addAll(previousTags.getOrDefault(pending.id, Collections.emptyList()));
+                }
+                written.add(pending);
+                pending.complete(KnowledgeGraphWriteResult.of(item));
+            } else if (item.status() == 429) {
+                retry.add(pending);
+            } else {
+                log.warn("KnowledgeGraphWriteBuffer#bulk item error, id={}, reason={}.", item.id(), item.error().reason());
+                pending.complete(KnowledgeGraphWriteResult.of(item));
+            }
+        }
+        if (changed) {
+            if (previousTags == null) {
+                queryCache.invalidateAll();
+            } else {
+                queryCache.invalidateTags(changedTags);
+            }
+        }
+        if (mirror != null && !written.isEmpty()) {
+            mirror(mirror, written);
+        }
+        return retry;
+    }
+
+    private void mirror(String index, List<Pending> written) {
+        BulkRequest.Builder builder = new BulkRequest.Builder();
+        builder.refresh(Refresh.False);
+        for (Pending pending : written) {
+            builder.operations(BulkOperation.of(o -> o
+                    .index(i -> i
+                            .index(index)
+                            .id(pending.id)
+                            .routing(routingStrategy.routingOf(pending.entity))
+                            .document(pending.entity))));
+        }
+        try {
+            BulkResponse response = client.bulk(builder.build());
+            long failures = response.items().stream().filter(item -> item.error() != null).count();
+            if (failures > 0) {
+                mirrorFailures.addAndGet(failures);
+                log.warn("KnowledgeGraphWriteBuffer#mirror item errors, index={}, failures={}.", index, failures);
+            }
+        } catch (IOException | RuntimeException e) {
+            mirrorFailures.addAndGet(written.size());
+            log.warn("KnowledgeGraphWriteBuffer#mirror error, index={}, docs={}.", index, written.size(), e);
+        }
+    }
+
+    private Refresh refreshPolicy() {
+        if ("true".equalsIgnoreCase(refresh)) {
+            return Refresh.True;
+        }
+        // 批量导入关闭了refresh时wait_for会阻塞到导入结束，改为不等待
+        if ("false".equalsIgnoreCase(refresh) || bulkIngester.isRefreshDisabled(KnowledgeGraphService.index_name)) {
+            return Refresh.False;
+        }
+        return Refresh.WaitFor;
+    }
+
+    private static void fail(List<Pending> batch, Throwable e) {
+        for (Pending pending : batch) {
+            pending.complete(KnowledgeGraphWriteResult.failed(pending.id, e));
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 缓冲中的一个文档，被覆盖的写入与最终写入得到同一结果
+     */
+    private final class Pending {
+        final String id;
+        final long enqueuedNanos = System.nanoTime();
+        KnowledgeGraphMarkResultEntity entity;
+        CompletableFuture<KnowledgeGraphWriteResult> future;
+        List<CompletableFuture<KnowledgeGraphWriteResult>> superseded;
+        /**
+         * 合并进来的所有写入的标签
+         */
+        final Set<String> tags = new HashSet<>();
+
+        Pending(String id, KnowledgeGraphMarkResultEntity entity, CompletableFuture<KnowledgeGraphWriteResult> future) {
+            this.id = id;
+            this.entity = entity;
+            this.future = future;
+            addTags(entity);
+        }
+
+        void supersede(KnowledgeGraphMarkResultEntity entity, CompletableFuture<KnowledgeGraphWriteResult> future) {
+            if (superseded == null) {
+                superseded = new ArrayList<>(1);
+            }
+            superseded.add(this.future);
+            this.entity = entity;
+            this.future = future;
+            addTags(entity);
+        }
+
+        private void addTags(KnowledgeGraphMarkResultEntity written) {
+            if (written.getTagIdList() != null) {
+                tags.addAll(written.getTagIdList());
+            }
+        }
+
+        void complete(KnowledgeGraphWriteResult result) {
+            writeLatency.record(System.nanoTime() - enqueuedNanos, TimeUnit.NANOSECONDS);
+            if (superseded != null) {
+                KnowledgeGraphWriteResult coalescedResult = result.asCoalesced();
+                superseded.forEach(f -> f.complete(coalescedResult));
+            }
+            future.complete(result);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.stressTest.knowledgeGraph;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import lombok.Data;
+
+/**
+ * 单文档写入结果
+ */
+@Data
+public class KnowledgeGraphWriteResult {
+
+    public static final String FAILED = "failed";
+
+    private String id;
+    /**
+     * ES返回的result：created / updated / noop；失败时为failed
+     */
+    private String result;
+    private int status;
+    private Long version;
+    private String error;
+    /**
+     * 该写入在缓冲中被同一文档的后续写入覆盖，结果为覆盖它的写入的结果
+     */
+    private boolean coalesced;
+
+    static KnowledgeGraphWriteResult of(BulkResponseItem item) {
+        KnowledgeGraphWriteResult result = new KnowledgeGraphWriteResult();
+        result.setId(item.id());
+        result.setStatus(item.status());
+        result.setVersion(item.version());
+        if (item.error() != null) {
+            result.setResult(FAILED);
+            result.setError(item.error().reason());
+        } else {
+            result.setResult(item.result());
+        }
+        return result;
+    }
+
+    static KnowledgeGraphWriteResult failed(String id, Throwable e) {
+        KnowledgeGraphWriteResult result = new KnowledgeGraphWriteResult();
+        result.setId(id);
+        result.setResult(FAILED);
+        result.setError(String.valueOf(e.getMessage()));
+        return result;
+    }
+
+    KnowledgeGraphWriteResult asCoalesced() {
+        KnowledgeGraphWriteResult copy = new KnowledgeGraphWriteResult();
+        copy.setId(id);
+        copy.setResult(result);
+        copy.setStatus(status);
+        copy.setVersion(version);
+        copy.setError(error);
+        copy.setCoalesced(true);
+        return copy;
+    }
+}
@@ -0,0 +1,22 @@
+package com.stressTest.loadTest;
+
+import com.stressTest.knowledgeGraph.KnowledgeGraphService;
+import com.stressTest.knowledgeGraph.KnowledgeGraphTestQueryRequest;
+
+/**
+ * 进程内直接调用KnowledgeGraphService，不经过HTTP层
+ */
+public class LoadTestDirectTarget implements LoadTestQueryTarget {
+
+    private final KnowledgeGraphService knowledgeGraphService;
+
+    public LoadTestDirectTarget(KnowledgeGraphService knowledgeGraphService) {
+        this.knowledgeGraphService = knowledgeGraphService;
+    }
+
+    @Override
+    public void query(KnowledgeGraphTestQueryRequest request) throws Exception {
+        // queryTerms出错时返回空页，会把失败记成低延迟的成功
+        knowledgeGraphService.queryTermsOrThrow(request);
+    }
+}
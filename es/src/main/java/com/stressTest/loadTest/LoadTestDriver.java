@@ -0,0 +1,232 @@
+package com.stressTest.loadTest;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.stressTest.knowledgeGraph.KnowledgeGraphService;
+import com.stressTest.knowledgeGraph.KnowledgeGraphTestQueryRequest;
+import com.stressTest.util.ExecutionModeConfig;
+import com.stressTest.util.LatencySnapshot;
+import com.stressTest.util.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内压测器，支持闭环（固定并发用户）与开环（固定到达速率）两种模式
+ */
+@Component
+@Slf4j
+public class LoadTestDriver {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    @Resource
+    private KnowledgeGraphService knowledgeGraphService;
+    @Resource
+    private ExecutionModeConfig executionModeConfig;
+
+    public LoadTestReport run(LoadTestRequest config) {
+        LoadTestQueryTarget target = createTarget(config);
+        Run run = new Run(config, target);
+        long coalescedBefore = knowledgeGraphService.getSingleFlight().getCoalescedCount();
+        try {
+            if ("open".equalsIgnoreCase(config.getMode())) {
+                run.openLoop();
+            } else {
+                run.closedLoop();
+            }
+        } finally {
+            target.close();
+        }
+        LoadTestReport report = run.report();
+        report.setServerExecutionMode(executionModeConfig.getMode());
+        report.setCoalesced(knowledgeGraphService.getSingleFlight().getCoalescedCount() - coalescedBefore);
+        report.setCoalescedRatio(report.getRequests() == 0 ? 0 : (double) report.getCoalesced() / report.getRequests());
+        log.info("LoadTestDriver#run report:{}{}", System.lineSeparator(), report.format());
+        return report;
+    }
+
+    /**
+     * 同一配置分别压测同步/query与异步/queryAsync，用于对比两条路径
+     */
+    public Map<String, LoadTestReport> compareSyncAsync(LoadTestRequest config) {
+        Map<String, LoadTestReport> result = new LinkedHashMap<>();
+        config.setTarget("http");
+        for (String path : new String[]{"/query", "/queryAsync"}) {
+            config.setHttpPath(path);
+            result.put(path, run(config));
+        }
+        return result;
+    }
+
+    /**
+     * 同一请求序列依次压测多个索引，用于对比不同mapping变体；未指定seed时固定一个，保证各索引收到相同的查询
+     */
+    public Map<String, LoadTestReport> compareIndices(LoadTestRequest config) {
+        if (config.getIndexNames() == null || config.getIndexNames().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "indexNames is required");
+        }
+        Map<String, LoadTestReport> result = new LinkedHashMap<>();
+        if (config.getSeed() == null) {
+            config.setSeed(ThreadLocalRandom.current().nextLong());
+        }
+        for (String indexName : config.getIndexNames()) {
+            config.setIndexName(indexName);
+            result.put(indexName, run(config));
+        }
+        return result;
+    }
+
+    private LoadTestQueryTarget createTarget(LoadTestRequest config) {
+        if ("http".equalsIgnoreCase(config.getTarget())) {
+            int connections = "open".equalsIgnoreCase(config.getMode()) ? config.getMaxConcurrency() : config.getVirtualUsers();
+            return new LoadTestHttpTarget(config.getBaseUrl() + config.getHttpPath(), connections);
+        }
+        if ("stub".equalsIgnoreCase(config.getTarget())) {
+            return new LoadTestStubTarget(config.getStubLatencyMs());
+        }
+        return new LoadTestDirectTarget(knowledgeGraphService);
+    }
+
+    /**
+     * 一次压测的状态
+     */
+    private static class Run {
+        private final LoadTestRequest config;
+        private final LoadTestQueryTarget target;
+        private final LoadTestQueryMix queryMix;
+        private final SplittableRandom random;
+        private final boolean virtual;
+
+        private final Recorder responseTime = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Recorder serviceTime = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        private long measureStartNanos;
+        private long endNanos;
+
+        Run(LoadTestRequest config, LoadTestQueryTarget target) {
+            this.config = config;
+            this.target = target;
+            this.queryMix = new LoadTestQueryMix(config);
+            this.virtual = ExecutionModeConfig.VIRTUAL.equalsIgnoreCase(config.getThreadMode());
+            this.random = new SplittableRandom(config.getSeed() != null ? config.getSeed() : ThreadLocalRandom.current().nextLong());
+        }
+
+        private void start() {
+            long now = System.nanoTime();
+            measureStartNanos = now + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+            endNanos = measureStartNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        }
+
+        /**
+         * 执行一次请求；intendedNanos为计划发送时间，响应时间从该时间算起
+         */
+        private void execute(KnowledgeGraphTestQueryRequest request, long intendedNanos) {
+            long startNanos = System.nanoTime();
+            boolean failed = false;
+            try {
+                target.query(request);
+            } catch (Exception e) {
+                failed = true;
+                log.debug("LoadTestDriver#execute error.", e);
+            }
+            long doneNanos = System.nanoTime();
+            if (doneNanos < measureStartNanos) {
+                return;
+            }
+            if (failed) {
+                errors.incrementAndGet();
+            }
+            responseTime.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (doneNanos - intendedNanos) / 1000));
+            serviceTime.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (doneNanos - startNanos) / 1000));
+        }
+
+        void closedLoop() {
+            int users = Math.max(1, config.getVirtualUsers());
+            ExecutorService executor = virtual ? VirtualThreads.newThreadPerTaskExecutor("load-test-closed-")
+                    : newExecutor(users, "closed");
+            start();
+            for (int i = 0; i < users; i++) {
+                SplittableRandom userRandom = random.split();
+                executor.execute(() -> {
+                    while (System.nanoTime() < endNanos) {
+                        KnowledgeGraphTestQueryRequest request = queryMix.next(userRandom);
+                        execute(request, System.nanoTime());
+                    }
+                });
+            }
+            awaitTermination(executor);
+        }
+
+        void openLoop() {
+            // 虚拟线程模式下每个请求一个线程，不再受maxConcurrency限制
+            ExecutorService executor = virtual ? VirtualThreads.newThreadPerTaskExecutor("load-test-open-")
+                    : newExecutor(Math.max(1, config.getMaxConcurrency()), "open");
+            long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, config.getRatePerSecond());
+            start();
+            long firstNanos = System.nanoTime();
+            for (long k = 0; ; k++) {
+                long intendedNanos = firstNanos + k * intervalNanos;
+                if (intendedNanos >= endNanos) {
+                    break;
+                }
+                long waitNanos;
+                while ((waitNanos = intendedNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+                KnowledgeGraphTestQueryRequest request = queryMix.next(random);
+                // 线程池满时请求在队列中等待，等待时间计入响应时间
+                executor.execute(() -> execute(request, intendedNanos));
+            }
+            awaitTermination(executor);
+        }
+
+        private ThreadPoolExecutor newExecutor(int threads, String name) {
+            return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("load-test-" + name + "-%d").setDaemon(true).build());
+        }
+
+        private void awaitTermination(ExecutorService executor) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        LoadTestReport report() {
+            Histogram response = responseTime.getIntervalHistogram();
+            Histogram service = serviceTime.getIntervalHistogram();
+            long durationNanos = Math.max(1, System.nanoTime() - measureStartNanos);
+
+            LoadTestReport report = new LoadTestReport();
+            report.setMode(config.getMode());
+            report.setTarget(config.getTarget());
+            report.setThreadMode(virtual ? ExecutionModeConfig.VIRTUAL : ExecutionModeConfig.PLATFORM);
+            report.setDurationMs(TimeUnit.NANOSECONDS.toMillis(durationNanos));
+            report.setRequests(response.getTotalCount());
+            report.setErrors(errors.get());
+            report.setThroughput(response.getTotalCount() * 1e9 / durationNanos);
+            report.setResponseTime(LatencySnapshot.of(response));
+            report.setServiceTime(LatencySnapshot.of(service));
+            return report;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.stressTest.loadTest;
+
+import com.stressTest.knowledgeGraph.KnowledgeGraphTestQueryRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+
+/**
+ * 通过HTTP调用查询接口，包含序列化与Web容器的开销。
+ * 连接池大小与压测并发一致，避免客户端连接数成为瓶颈。
+ */
+public class LoadTestHttpTarget implements LoadTestQueryTarget {
+
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final String url;
+
+    public LoadTestHttpTarget(String url, int connections) {
+        this.httpClient = HttpClients.custom()
+                .setMaxConnTotal(connections)
+                .setMaxConnPerRoute(connections)
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        this.url = url;
+    }
+
+    @Override
+    public void query(KnowledgeGraphTestQueryRequest request) {
+        restTemplate.postForObject(url, request, String.class);
+    }
+
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
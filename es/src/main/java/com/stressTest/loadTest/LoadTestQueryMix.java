@@ -0,0 +1,70 @@
+package com.stressTest.loadTest;
+
+import com.stressTest.knowledgeGraph.KnowledgeGraphDataGenerator;
+import com.stressTest.knowledgeGraph.KnowledgeGraphTagSampler;
+import com.stressTest.knowledgeGraph.KnowledgeGraphTestQueryRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 按配置的标签/子类型/页码分布生成查询请求
+ */
+public class LoadTestQueryMix {
+
+    private final LoadTestRequest config;
+    private final KnowledgeGraphTagSampler tagSampler;
+    private final KnowledgeGraphTagSampler subtypeSampler;
+    private final double[] pageCumulative;
+
+    public LoadTestQueryMix(LoadTestRequest config) {
+        this.config = config;
+        this.tagSampler = KnowledgeGraphTagSampler.of(config.getTagDistribution(),
+                KnowledgeGraphDataGenerator.TAG_IDS.length, config.getZipfExponent());
+        this.subtypeSampler = KnowledgeGraphTagSampler.uniform(config.getResourceSubtypes().size());
+        List<Double> weights = config.getPageNumWeights();
+        this.pageCumulative = new double[Math.max(1, weights.size())];
+        double sum = 0;
+        for (int i = 0; i < weights.size(); i++) {
+            sum += weights.get(i);
+            pageCumulative[i] = sum;
+        }
+        for (int i = 0; i < pageCumulative.length; i++) {
+            pageCumulative[i] = sum == 0 ? 1 : pageCumulative[i] / sum;
+        }
+    }
+
+    public KnowledgeGraphTestQueryRequest next(SplittableRandom random) {
+        int tagCount = config.getTagsPerQueryMin()
+                + random.nextInt(Math.max(1, config.getTagsPerQueryMax() - config.getTagsPerQueryMin() + 1));
+        List<String> tagIdList = new ArrayList<>(tagCount);
+        for (int index : tagSampler.sample(random, tagCount)) {
+            tagIdList.add(KnowledgeGraphDataGenerator.TAG_IDS[index]);
+        }
+        List<String> subtypeList = new ArrayList<>(config.getSubtypesPerQuery());
+        for (int index : subtypeSampler.sample(random, config.getSubtypesPerQuery())) {
+            subtypeList.add(config.getResourceSubtypes().get(index));
+        }
+
+        KnowledgeGraphTestQueryRequest request = new KnowledgeGraphTestQueryRequest();
+        request.setTagIdList(tagIdList);
+        request.setResourceSubtypeList(subtypeList);
+        request.setPageNum(nextPageNum(random));
+        request.setPageSize(config.getPageSize());
+        request.setSort(config.isSort());
+        request.setTotalHits(config.getTotalHits());
+        request.setIndexName(config.getIndexName());
+        return request;
+    }
+
+    private int nextPageNum(SplittableRandom random) {
+        double value = random.nextDouble();
+        for (int i = 0; i < pageCumulative.length; i++) {
+            if (value < pageCumulative[i]) {
+                return i + 1;
+            }
+        }
+        return pageCumulative.length;
+    }
+}
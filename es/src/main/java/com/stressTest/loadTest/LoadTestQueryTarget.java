@@ -0,0 +1,20 @@
+package com.stressTest.loadTest;
+
+import com.stressTest.knowledgeGraph.KnowledgeGraphTestQueryRequest;
+
+/**
+ * 压测对象，实现需线程安全
+ */
+public interface LoadTestQueryTarget {
+
+    /**
+     * 执行一次查询，失败时抛出异常
+     */
+    void query(KnowledgeGraphTestQueryRequest request) throws Exception;
+
+    /**
+     * 压测结束后释放资源
+     */
+    default void close() {
+    }
+}
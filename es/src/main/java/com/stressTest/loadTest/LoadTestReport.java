@@ -0,0 +1,52 @@
+package com.stressTest.loadTest;
+
+import com.stressTest.util.LatencySnapshot;
+import lombok.Data;
+
+/**
+ * 压测报告，延迟单位为毫秒
+ */
+@Data
+public class LoadTestReport {
+    private String mode;
+    private String target;
+    /**
+     * 压测器线程模型与本服务的请求处理线程模型
+     */
+    private String threadMode;
+    private String serverExecutionMode;
+    private long durationMs;
+    private long requests;
+    private long errors;
+    private double throughput;
+    /**
+     * 压测期间被合并到在途ES查询的请求数及占比（仅统计本进程的KnowledgeGraphService）
+     */
+    private long coalesced;
+    private double coalescedRatio;
+
+    /**
+     * 响应时间：open模式从计划发送时间算起（已修正协调遗漏），closed模式等于服务时间
+     */
+    private LatencySnapshot responseTime;
+    /**
+     * 服务时间：从实际发出请求算起
+     */
+    private LatencySnapshot serviceTime;
+
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("mode=%s target=%s duration=%dms%n", mode, target, durationMs));
+        sb.append(String.format("threadMode=%s serverExecutionMode=%s%n", threadMode, serverExecutionMode));
+        sb.append(String.format("requests=%d errors=%d throughput=%.1f req/s%n", requests, errors, throughput));
+        sb.append(String.format("coalesced=%d (%.2f%%)%n", coalesced, coalescedRatio * 100));
+        sb.append("response time (ms): ").append(format(responseTime)).append(System.lineSeparator());
+        sb.append("service time  (ms): ").append(format(serviceTime));
+        return sb.toString();
+    }
+
+    private static String format(LatencySnapshot latency) {
+        return String.format("mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f",
+                latency.getMean(), latency.getP50(), latency.getP90(), latency.getP99(), latency.getP999(), latency.getMax());
+    }
+}
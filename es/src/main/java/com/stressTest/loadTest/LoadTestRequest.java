@@ -0,0 +1,87 @@
+package com.stressTest.loadTest;
+
+import com.google.common.collect.Lists;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 压测配置
+ */
+@Data
+@NoArgsConstructor
+public class LoadTestRequest {
+    /**
+     * closed：固定并发用户循环请求；open：固定到达速率（按计划发送时间统计，修正协调遗漏）
+     */
+    private String mode = "closed";
+    /**
+     * direct：进程内直接调用KnowledgeGraphService；http：请求baseUrl；stub：本地模拟ES延迟，用于离线验证压测器本身
+     */
+    private String target = "direct";
+    private String baseUrl = "http://localhost:8080";
+    private String httpPath = "/query";
+
+    /**
+     * 压测器自身的线程模型：platform / virtual（需JDK 21+），virtual可支撑上万并发用户
+     */
+    private String threadMode = "platform";
+
+    /**
+     * closed模式的并发用户数
+     */
+    private int virtualUsers = 50;
+    /**
+     * open模式的每秒请求数
+     */
+    private int ratePerSecond = 500;
+    /**
+     * open模式最大并发，超出的请求排队，排队时间计入响应时间
+     */
+    private int maxConcurrency = 1000;
+
+    private int durationSeconds = 30;
+    /**
+     * 预热时长，期间的请求不计入统计
+     */
+    private int warmupSeconds = 5;
+
+    /**
+     * stub模式的平均延迟
+     */
+    private double stubLatencyMs = 5;
+
+    /**
+     * 请求参数分布，相同seed生成相同的请求序列
+     */
+    private Long seed;
+    private int tagsPerQueryMin = 1;
+    private int tagsPerQueryMax = 5;
+    /**
+     * 标签分布：uniform / zipf
+     */
+    private String tagDistribution = "zipf";
+    private double zipfExponent = 1.0;
+    private List<String> resourceSubtypes = Lists.newArrayList("question", "unit", "word", "wordQuestion");
+    private int subtypesPerQuery = 1;
+    /**
+     * 页码分布权重，下标i对应第i+1页
+     */
+    private List<Double> pageNumWeights = Lists.newArrayList(0.8, 0.1, 0.05, 0.05);
+    private int pageSize = 100;
+    private boolean sort = true;
+    /**
+     * 总数统计方式，见KnowledgeGraphQueryRequest#totalHits
+     */
+    private String totalHits;
+
+    /**
+     * 查询的索引，为空时查询别名
+     */
+    private String indexName;
+    /**
+     * compareIndices依次压测的索引，如不同mapping变体的索引
+     */
+    private List<String> indexNames;
+}
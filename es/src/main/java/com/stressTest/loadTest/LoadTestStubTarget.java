@@ -0,0 +1,30 @@
+package com.stressTest.loadTest;
+
+import com.stressTest.knowledgeGraph.KnowledgeGraphTestQueryRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 本地模拟ES：按指数分布休眠，用于在没有集群时验证压测器本身
+ */
+public class LoadTestStubTarget implements LoadTestQueryTarget {
+
+    private final double meanLatencyNanos;
+
+    public LoadTestStubTarget(double meanLatencyMs) {
+        this.meanLatencyNanos = meanLatencyMs * TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public void query(KnowledgeGraphTestQueryRequest request) {
+        double u = ThreadLocalRandom.current().nextDouble();
+        long sleepNanos = (long) (-Math.log(1 - u) * meanLatencyNanos);
+        long deadline = System.nanoTime() + sleepNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
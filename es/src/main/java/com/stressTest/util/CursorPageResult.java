@@ -0,0 +1,31 @@
+package com.stressTest.util;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * 游标分页结果，cursor为空表示已无下一页
+ */
+public class CursorPageResult<T> extends PageResult<T> {
+
+    /** 下一页游标 **/
+
+    private String cursor;
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public CursorPageResult() {
+        super();
+    }
+
+    public CursorPageResult(List<T> pageData, BigInteger totalSize, String cursor) {
+        super(pageData, totalSize);
+        this.cursor = cursor;
+    }
+}
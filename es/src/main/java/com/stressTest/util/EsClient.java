@@ -1,65 +1,184 @@
 package com.stressTest.util;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.transport.rest_client.RestClientOptions;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
 import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
-import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 
-import javax.net.ssl.SSLContext;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * ES客户端工厂：多节点轮询、可选节点嗅探，连接池/IO线程/超时/压缩均可配置（stressTest.es.*）。
+ * 同步与异步client共用一个RestClient及其连接池。
+ */
+@Configuration
+@Slf4j
 public class EsClient {
-    private static final ElasticsearchClient clint = clientWithPassword();
 
-    private static ElasticsearchClient clint() {
-        // Create the low-level client
-        RestClient restClient = RestClient.builder(new HttpHost("", 9200)).build();
-        // Create the transport with a Jackson mapper
-        ElasticsearchTransport transport = new RestClientTransport(restClient, new JacksonJsonpMapper());
-        // And create the API client
-        return new ElasticsearchClient(transport);
-    }
+    @Resource
+    private EsProperties esProperties;
+
+    private PoolingNHttpClientConnectionManager connectionManager;
+    private Sniffer sniffer;
+
+    @Bean(destroyMethod = "close")
+    public RestClient restClient() throws IOReactorException {
+        HttpHost[] hosts = esProperties.getHosts().stream().map(HttpHost::create).toArray(HttpHost[]::new);
+        connectionManager = connectionManager();
 
-    private static ElasticsearchClient clientWithPassword() {
-        // Example usage
-        String host = "";
-        int port = -1;
-        String username = "";
-        String password = "";
-        // Set up credentials for Basic Auth
-        final BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-        credentialsProvider.setCredentials(
-                AuthScope.ANY, // Apply to all scopes
-                new UsernamePasswordCredentials(username, password)
-        );
-
-        // Create the low-level client with authentication
-        RestClient restClient = RestClient.builder(new HttpHost(host, port))
-                .setHttpClientConfigCallback(new RestClientBuilder.HttpClientConfigCallback() {
-                    @Override
-                    public HttpAsyncClientBuilder customizeHttpClient(HttpAsyncClientBuilder httpClientBuilder) {
-                        return httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+        RestClientBuilder builder = RestClient.builder(hosts)
+                .setCompressionEnabled(esProperties.isCompression())
+                .setRequestConfigCallback(requestConfig -> requestConfig
+                        .setConnectTimeout(esProperties.getConnectTimeoutMs())
+                        .setSocketTimeout(esProperties.getSocketTimeoutMs())
+                        .setConnectionRequestTimeout(esProperties.getConnectionRequestTimeoutMs()))
+                .setHttpClientConfigCallback(httpClientBuilder -> {
+                    httpClientBuilder.setConnectionManager(connectionManager)
+                            .setKeepAliveStrategy((response, context) -> esProperties.getKeepAliveMs());
+                    if (StringUtils.hasText(esProperties.getUsername())) {
+                        // Set up credentials for Basic Auth
+                        BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+                        credentialsProvider.setCredentials(AuthScope.ANY,
+                                new UsernamePasswordCredentials(esProperties.getUsername(), esProperties.getPassword()));
+                        httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
                     }
-                }).build();
+                    return httpClientBuilder;
+                });
+
+        SniffOnFailureListener sniffOnFailureListener = null;
+        if (esProperties.isSniff()) {
+            sniffOnFailureListener = new SniffOnFailureListener();
+            builder.setFailureListener(sniffOnFailureListener);
+        }
+        RestClient restClient = builder.build();
+        if (sniffOnFailureListener != null) {
+            ElasticsearchNodesSniffer.Scheme scheme = "https".equals(hosts[0].getSchemeName())
+                    ? ElasticsearchNodesSniffer.Scheme.HTTPS : ElasticsearchNodesSniffer.Scheme.HTTP;
+            sniffer = Sniffer.builder(restClient)
+                    .setSniffIntervalMillis(esProperties.getSniffIntervalMs())
+                    .setNodesSniffer(new ElasticsearchNodesSniffer(restClient,
+                            ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT, scheme))
+                    .build();
+            sniffOnFailureListener.setSniffer(sniffer);
+        }
+        log.info("EsClient: hosts={}, maxConnTotal={}, maxConnPerRoute={}, sniff={}.", esProperties.getHosts(),
+                esProperties.getMaxConnTotal(), esProperties.getMaxConnPerRoute(), esProperties.isSniff());
+        return restClient;
+    }
+
+    /**
+     * 自建连接管理器，以便调整IO线程数并读取连接池统计
+     */
+    private PoolingNHttpClientConnectionManager connectionManager() throws IOReactorException {
+        IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(esProperties.getConnectTimeoutMs())
+                .setSoTimeout(esProperties.getSocketTimeoutMs())
+                .setSoKeepAlive(true);
+        if (esProperties.getIoThreadCount() > 0) {
+            ioReactorConfig.setIoThreadCount(esProperties.getIoThreadCount());
+        }
+        PoolingNHttpClientConnectionManager manager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(ioReactorConfig.build()),
+                RegistryBuilder.<SchemeIOSessionStrategy>create()
+                        .register("http", NoopIOSessionStrategy.INSTANCE)
+                        .register("https", SSLIOSessionStrategy.getSystemDefaultStrategy())
+                        .build());
+        manager.setMaxTotal(esProperties.getMaxConnTotal());
+        manager.setDefaultMaxPerRoute(esProperties.getMaxConnPerRoute());
+        return manager;
+    }
 
+    @Bean
+    public ElasticsearchTransport elasticsearchTransport(RestClient restClient) {
         // Create the transport with a Jackson mapper
-        ElasticsearchTransport transport = new RestClientTransport(restClient, new JacksonJsonpMapper());
+        return new RestClientTransport(restClient, new JacksonJsonpMapper());
+    }
 
-        // And create the API client
+    @Bean
+    public ElasticsearchClient elasticsearchClient(ElasticsearchTransport transport) {
         return new ElasticsearchClient(transport);
     }
 
-    public static ElasticsearchClient getClint() {
-        return clint;
+    // 与同步client共用transport（连接池、IO线程）
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport transport) {
+        return new ElasticsearchAsyncClient(transport);
+    }
+
+    /**
+     * 单次请求的传输选项：socket超时改为timeoutMillis，连接相关超时沿用配置
+     */
+    public TransportOptions withSocketTimeout(TransportOptions base, long timeoutMillis) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(esProperties.getConnectTimeoutMs())
+                .setConnectionRequestTimeout(esProperties.getConnectionRequestTimeoutMs())
+                .setSocketTimeout((int) Math.min(Integer.MAX_VALUE, Math.max(1, timeoutMillis)))
+                .build();
+        RequestOptions.Builder builder = base instanceof RestClientOptions
+                ? ((RestClientOptions) base).restClientRequestOptions().toBuilder()
+                : RequestOptions.DEFAULT.toBuilder();
+        return new RestClientOptions(builder.setRequestConfig(requestConfig).build());
+    }
+
+    /**
+     * 连接池使用情况：总体及每个节点的已租用/等待/空闲连接数
+     */
+    public Map<String, Object> getPoolStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (connectionManager == null) {
+            return result;
+        }
+        result.put("total", toMap(connectionManager.getTotalStats()));
+        Map<String, Object> routes = new LinkedHashMap<>();
+        connectionManager.getRoutes().forEach(route ->
+                routes.put(route.getTargetHost().toURI(), toMap(connectionManager.getStats(route))));
+        result.put("routes", routes);
+        return result;
+    }
+
+    private static Map<String, Integer> toMap(PoolStats stats) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        result.put("leased", stats.getLeased());
+        result.put("pending", stats.getPending());
+        result.put("available", stats.getAvailable());
+        result.put("max", stats.getMax());
+        return result;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (sniffer != null) {
+            sniffer.close();
+        }
     }
 }
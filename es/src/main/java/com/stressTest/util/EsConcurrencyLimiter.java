@@ -0,0 +1,172 @@
+package com.stressTest.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 访问ES的自适应并发限制（gradient算法）：
+ * 以最近两个窗口内的最小RTT作为无排队时的基线，基线与近期RTT之比作为梯度，近期RTT变长时按比例收缩上限，
+ * RTT接近基线时每次增加sqrt(limit)的排队余量；
+ * ES报错或超时时上限乘以backoff（乘性减）。超过上限的请求立即拒绝，由调用方降级或返回429。
+ */
+@Component
+public class EsConcurrencyLimiter {
+
+    /**
+     * 近期RTT的EMA窗口（样本数）
+     */
+    private static final int SHORT_WINDOW = 10;
+    private static final double SMOOTHING = 0.05;
+    private static final double BACKOFF = 0.9;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Value("${stressTest.limiter.enabled:false}")
+    private boolean enabled;
+    @Value("${stressTest.limiter.initialLimit:20}")
+    private int initialLimit;
+    @Value("${stressTest.limiter.minLimit:4}")
+    private int minLimit;
+    @Value("${stressTest.limiter.maxLimit:400}")
+    private int maxLimit;
+    /**
+     * 近期RTT不超过基线的该倍数时不收缩
+     */
+    @Value("${stressTest.limiter.rttTolerance:1.5}")
+    private double rttTolerance;
+    /**
+     * 最小RTT的统计窗口，基线取当前与上一个窗口的最小值，ES变慢后最多两个窗口基线跟上
+     */
+    @Value("${stressTest.limiter.baselineWindowSeconds:30}")
+    private long baselineWindowSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long minRttNanos = Long.MAX_VALUE;
+    private long previousMinRttNanos = Long.MAX_VALUE;
+    private long windowStartNanos = System.nanoTime();
+    private double shortRttNanos;
+
+    private Counter rejected;
+    private Counter degraded;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        limit = initialLimit;
+        Gauge.builder("kg.limiter.limit", this, l -> l.limit).register(meterRegistry);
+        Gauge.builder("kg.limiter.inflight", inFlight, AtomicInteger::get).register(meterRegistry);
+        rejected = Counter.builder("kg.limiter.rejected").tag("outcome", "rejected").register(meterRegistry);
+        degraded = Counter.builder("kg.limiter.rejected").tag("outcome", "degraded").register(meterRegistry);
+        dropped = Counter.builder("kg.limiter.dropped").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取一个并发名额，成功后必须调用onSuccess、onDropped或onIgnore之一
+     */
+    public boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求正常完成，rttNanos参与上限调整
+     */
+    public void onSuccess(long rttNanos) {
+        if (!enabled) {
+            return;
+        }
+        int current = inFlight.getAndDecrement();
+        update(rttNanos, current);
+    }
+
+    /**
+     * ES报错或超时，上限乘性减
+     */
+    public void onDropped() {
+        if (!enabled) {
+            return;
+        }
+        inFlight.decrementAndGet();
+        dropped.increment();
+        synchronized (this) {
+            limit = Math.max(minLimit, limit * BACKOFF);
+        }
+    }
+
+    /**
+     * 释放名额，不参与上限调整
+     */
+    public void onIgnore() {
+        if (enabled) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 被拒绝的请求：degraded为true表示用过期缓存应答，否则返回429
+     */
+    public void recordRejected(boolean degradedAnswer) {
+        (degradedAnswer ? degraded : rejected).increment();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtCompletion) {
+        long now = System.nanoTime();
+        if (now - windowStartNanos > TimeUnit.SECONDS.toNanos(baselineWindowSeconds)) {
+            previousMinRttNanos = minRttNanos;
+            minRttNanos = Long.MAX_VALUE;
+            windowStartNanos = now;
+        }
+        minRttNanos = Math.min(minRttNanos, Math.max(1, rttNanos));
+        long baselineNanos = Math.min(minRttNanos, previousMinRttNanos);
+        shortRttNanos = shortRttNanos == 0 ? rttNanos : shortRttNanos + (rttNanos - shortRttNanos) * 2 / (SHORT_WINDOW + 1);
+        // 实际并发远低于上限时RTT不反映上限是否合适，不调整
+        if (inFlightAtCompletion < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * baselineNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("limit", (int) limit);
+        result.put("inFlight", inFlight.get());
+        synchronized (this) {
+            long baselineNanos = Math.min(minRttNanos, previousMinRttNanos);
+            result.put("baselineRttMicros", baselineNanos == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMicros(baselineNanos));
+            result.put("shortRttMicros", TimeUnit.NANOSECONDS.toMicros((long) shortRttNanos));
+        }
+        result.put("rejected", (long) rejected.count());
+        result.put("degraded", (long) degraded.count());
+        result.put("dropped", (long) dropped.count());
+        return result;
+    }
+}
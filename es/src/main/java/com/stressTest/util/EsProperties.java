@@ -0,0 +1,47 @@
+package com.stressTest.util;
+
+import com.google.common.collect.Lists;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * ES客户端配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "stress-test.es")
+public class EsProperties {
+    /**
+     * 节点地址，如http://10.0.0.1:9200
+     */
+    private List<String> hosts = Lists.newArrayList("http://localhost:9200");
+    private String username;
+    private String password;
+
+    /**
+     * 连接池总连接数与单节点连接数
+     */
+    private int maxConnTotal = 200;
+    private int maxConnPerRoute = 100;
+    /**
+     * IO reactor线程数，<=0时取CPU核数
+     */
+    private int ioThreadCount;
+    private long keepAliveMs = 60000;
+    private int connectTimeoutMs = 1000;
+    private int socketTimeoutMs = 30000;
+    /**
+     * 从连接池获取连接的等待时间
+     */
+    private int connectionRequestTimeoutMs = 1000;
+    /**
+     * 请求体gzip压缩
+     */
+    private boolean compression = true;
+
+    private boolean sniff;
+    private int sniffIntervalMs = 300000;
+}
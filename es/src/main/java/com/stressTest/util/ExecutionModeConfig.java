@@ -0,0 +1,46 @@
+package com.stressTest.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 请求处理线程模型：platform使用Tomcat默认线程池，virtual为每个请求创建一个虚拟线程（需JDK 21+）。
+ * 查询链路上ES的同步调用运行在请求线程上，因此同样跑在虚拟线程中。
+ */
+@Configuration
+@Slf4j
+public class ExecutionModeConfig {
+
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    @Value("${stressTest.execution.mode:platform}")
+    private String mode;
+
+    /**
+     * 实际生效的模式，JVM不支持虚拟线程时退回platform
+     */
+    public String getMode() {
+        if (VIRTUAL.equalsIgnoreCase(mode) && VirtualThreads.isSupported()) {
+            return VIRTUAL;
+        }
+        return PLATFORM;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> executionModeProtocolHandlerCustomizer() {
+        if (VIRTUAL.equalsIgnoreCase(mode) && !VirtualThreads.isSupported()) {
+            log.warn("stressTest.execution.mode=virtual requires JDK 21+, fallback to platform threads. java.version={}",
+                    System.getProperty("java.version"));
+        }
+        if (!VIRTUAL.equals(getMode())) {
+            return protocolHandler -> {
+            };
+        }
+        log.info("ExecutionModeConfig: handling requests on virtual threads.");
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("tomcat-virtual-"));
+    }
+}
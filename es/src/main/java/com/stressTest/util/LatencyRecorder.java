@@ -0,0 +1,150 @@
+package com.stressTest.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SingleWriterRecorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询延迟记录：每个线程写自己的HdrHistogram，记录无锁、无IO；
+ * 虚拟线程数量不受控，改为写按CPU分条的共享Recorder（同样无锁）。
+ * 后台线程按固定间隔汇总为区间快照，并可选地以HdrHistogram日志格式批量写文件。
+ */
+@Component
+@Slf4j
+public class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    @Value("${stressTest.latency.intervalSeconds:10}")
+    private long intervalSeconds;
+
+    /**
+     * 区间日志文件，为空时不写
+     */
+    @Value("${stressTest.latency.logFile:}")
+    private String logFile;
+
+    private final List<SingleWriterRecorder> recorders = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<SingleWriterRecorder> threadRecorder = ThreadLocal.withInitial(() -> {
+        SingleWriterRecorder recorder = new SingleWriterRecorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        recorders.add(recorder);
+        return recorder;
+    });
+
+    private final Recorder[] sharedRecorders = newSharedRecorders(Runtime.getRuntime().availableProcessors() * 2);
+
+    private final Histogram cumulative = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private volatile LatencySnapshot intervalSnapshot = LatencySnapshot.of(new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+    private volatile LatencySnapshot cumulativeSnapshot = intervalSnapshot;
+
+    private ScheduledExecutorService scheduler;
+    private PrintStream logStream;
+    private HistogramLogWriter logWriter;
+
+    @PostConstruct
+    public void init() throws FileNotFoundException {
+        if (StringUtils.hasText(logFile)) {
+            logStream = new PrintStream(new FileOutputStream(logFile, true), false);
+            logWriter = new HistogramLogWriter(logStream);
+            logWriter.outputLogFormatVersion();
+            logWriter.outputStartTime(System.currentTimeMillis());
+            logWriter.outputLegend();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("latency-recorder").setDaemon(true).build());
+        scheduler.scheduleAtFixedRate(this::roll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdown();
+        roll();
+        if (logStream != null) {
+            logStream.close();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param startNanos System.nanoTime()起点
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long durationNanos) {
+        long micros = Math.max(0, Math.min(HIGHEST_TRACKABLE_MICROS, durationNanos / 1000));
+        if (VirtualThreads.isVirtual(Thread.currentThread())) {
+            sharedRecorders[ThreadLocalRandom.current().nextInt(sharedRecorders.length)].recordValue(micros);
+        } else {
+            threadRecorder.get().recordValue(micros);
+        }
+    }
+
+    private static Recorder[] newSharedRecorders(int stripes) {
+        Recorder[] result = new Recorder[stripes];
+        for (int i = 0; i < stripes; i++) {
+            result[i] = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        }
+        return result;
+    }
+
+    /**
+     * 最近一个完整区间的分位数
+     */
+    public LatencySnapshot getIntervalSnapshot() {
+        return intervalSnapshot;
+    }
+
+    /**
+     * 启动以来（截至最近一个区间）的分位数
+     */
+    public LatencySnapshot getCumulativeSnapshot() {
+        return cumulativeSnapshot;
+    }
+
+    private synchronized void roll() {
+        try {
+            Histogram interval = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+            long now = System.currentTimeMillis();
+            interval.setStartTimeStamp(now - TimeUnit.SECONDS.toMillis(intervalSeconds));
+            for (SingleWriterRecorder recorder : recorders) {
+                interval.add(recorder.getIntervalHistogram());
+            }
+            for (Recorder recorder : sharedRecorders) {
+                interval.add(recorder.getIntervalHistogram());
+            }
+            interval.setEndTimeStamp(now);
+            cumulative.add(interval);
+            cumulative.setEndTimeStamp(now);
+            intervalSnapshot = LatencySnapshot.of(interval);
+            cumulativeSnapshot = LatencySnapshot.of(cumulative);
+            if (logWriter != null) {
+                logWriter.outputIntervalHistogram(interval);
+                logStream.flush();
+            }
+        } catch (RuntimeException e) {
+            log.error("LatencyRecorder#roll error.", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.stressTest.util;
+
+import lombok.Data;
+import org.HdrHistogram.Histogram;
+
+/**
+ * 延迟分位数快照，单位毫秒
+ */
+@Data
+public class LatencySnapshot {
+    private long startTimeStamp;
+    private long endTimeStamp;
+    private long count;
+    private double mean;
+    private double p50;
+    private double p90;
+    private double p99;
+    private double p999;
+    private double max;
+
+    /**
+     * @param histogram 以微秒记录的直方图
+     */
+    public static LatencySnapshot of(Histogram histogram) {
+        LatencySnapshot snapshot = new LatencySnapshot();
+        snapshot.setStartTimeStamp(histogram.getStartTimeStamp());
+        snapshot.setEndTimeStamp(histogram.getEndTimeStamp());
+        snapshot.setCount(histogram.getTotalCount());
+        snapshot.setMean(histogram.getMean() / 1000);
+        snapshot.setP50(histogram.getValueAtPercentile(50) / 1000.0);
+        snapshot.setP90(histogram.getValueAtPercentile(90) / 1000.0);
+        snapshot.setP99(histogram.getValueAtPercentile(99) / 1000.0);
+        snapshot.setP999(histogram.getValueAtPercentile(99.9) / 1000.0);
+        snapshot.setMax(histogram.getMaxValue() / 1000.0);
+        return snapshot;
+    }
+}
@@ -16,6 +16,13 @@ import java.util.List;
  */
 public class PageResult<T> implements Serializable {
 
+    /** 总数精确 **/
+    public static final String RELATION_EQ = "eq";
+    /** 总数为下限（超过track_total_hits上限） **/
+    public static final String RELATION_GTE = "gte";
+    /** 总数取自缓存的估计值 **/
+    public static final String RELATION_ESTIMATED = "estimated";
+
     /** 集合数据 **/
 
     private List<T> pageData;
@@ -24,6 +31,14 @@ public class PageResult<T> implements Serializable {
 
     private BigInteger totalSize;
 
+    /** 总数的含义：eq/gte/estimated，不统计总数时为空 **/
+
+    private String totalRelation;
+
+    /** ES在timeout内未查完全部分片，结果可能不完整 **/
+
+    private boolean timedOut;
+
     public List<T> getPageData() {
         return pageData;
     }
@@ -40,14 +55,32 @@ public class PageResult<T> implements Serializable {
         this.totalSize = totalSize;
     }
 
+    public String getTotalRelation() {
+        return totalRelation;
+    }
+
+    public void setTotalRelation(String totalRelation) {
+        this.totalRelation = totalRelation;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public void setTimedOut(boolean timedOut) {
+        this.timedOut = timedOut;
+    }
+
 
     public PageResult() {
         this.pageData = new ArrayList<>();
         this.totalSize = BigInteger.ZERO;
+        this.totalRelation = RELATION_EQ;
     }
 
     public PageResult(List<T> pageData, BigInteger totalSize) {
         this.pageData = pageData;
         this.totalSize = totalSize;
+        this.totalRelation = RELATION_EQ;
     }
 }
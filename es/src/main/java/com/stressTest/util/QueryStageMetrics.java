@@ -0,0 +1,118 @@
+package com.stressTest.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询各阶段耗时（kg.query.stage，tag：op、stage），基于System.nanoTime()，以Micrometer Timer导出。
+ * 启动时按固定的(op, stage)组合注册全部Timer，记录时只有两次只读map查找和Timer的无锁累加，不拼接字符串。
+ */
+@Component
+public class QueryStageMetrics {
+
+    public static final String SEARCH = "search";
+    public static final String COUNT = "count";
+    public static final String MSEARCH = "msearch";
+    /**
+     * HTTP接口，op为servletPath
+     */
+    public static final String QUERY = "/query";
+    public static final String QUERY_RAW = "/queryRaw";
+
+    public static final String BUILD = "build";
+    /**
+     * 客户端观测到的ES往返，含网络和响应解析
+     */
+    public static final String ES_ROUNDTRIP = "es_roundtrip";
+    /**
+     * ES响应中的took
+     */
+    public static final String ES_TOOK = "es_took";
+    /**
+     * 往返减去took：网络、排队与响应解析
+     */
+    public static final String ES_CLIENT_OVERHEAD = "es_client_overhead";
+    public static final String MAPPING = "mapping";
+    /**
+     * 微批中等待凑批的时间
+     */
+    public static final String BATCH_WAIT = "batch_wait";
+
+    public static final String HANDLER = "handler";
+    public static final String SERIALIZATION = "serialization";
+    public static final String TOTAL = "total";
+
+    private static final String NAME = "kg.query.stage";
+
+    private static final String[] ES_OPS = {SEARCH, COUNT, MSEARCH};
+    private static final String[] ES_STAGES = {BUILD, ES_ROUNDTRIP, ES_TOOK, ES_CLIENT_OVERHEAD, MAPPING, BATCH_WAIT};
+    private static final String[] HTTP_OPS = {QUERY, QUERY_RAW};
+    private static final String[] HTTP_STAGES = {HANDLER, SERIALIZATION, TOTAL};
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * op -> stage -> Timer，init后只读
+     */
+    private final Map<String, Map<String, Timer>> timers = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        register(ES_OPS, ES_STAGES);
+        register(HTTP_OPS, HTTP_STAGES);
+    }
+
+    private void register(String[] ops, String[] stages) {
+        for (String op : ops) {
+            Map<String, Timer> byStage = timers.computeIfAbsent(op, k -> new HashMap<>());
+            for (String stage : stages) {
+                byStage.put(stage, Timer.builder(NAME)
+                        .tag("op", op)
+                        .tag("stage", stage)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    public void record(String op, String stage, long durationNanos) {
+        timer(op, stage).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录从startNanos到现在的耗时
+     *
+     * @return 当前System.nanoTime()，作为下一阶段的起点
+     */
+    public long recordSince(String op, String stage, long startNanos) {
+        long now = System.nanoTime();
+        record(op, stage, now - startNanos);
+        return now;
+    }
+
+    /**
+     * 记录ES took及客户端额外开销
+     */
+    public void recordEsTook(String op, long tookMillis, long roundtripNanos) {
+        long tookNanos = TimeUnit.MILLISECONDS.toNanos(tookMillis);
+        record(op, ES_TOOK, tookNanos);
+        record(op, ES_CLIENT_OVERHEAD, Math.max(0, roundtripNanos - tookNanos));
+    }
+
+    private Timer timer(String op, String stage) {
+        Map<String, Timer> byStage = timers.get(op);
+        Timer timer = byStage == null ? null : byStage.get(stage);
+        if (timer == null) {
+            throw new IllegalArgumentException("unregistered stage " + op + "/" + stage);
+        }
+        return timer;
+    }
+}
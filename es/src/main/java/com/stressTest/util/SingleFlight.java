@@ -0,0 +1,172 @@
+package com.stressTest.util;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并：相同key的并发调用只执行一次，其余调用等待并共享结果。
+ * 等待超时的调用自行执行，不会被慢请求无限拖住。
+ */
+public class SingleFlight<K, V> {
+
+    public interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    /**
+     * 领导者的结果不可共享，跟随者收到后自行执行
+     */
+    private static final Exception NOT_SHARED = new Exception("result not shared", null, false, false) {
+    };
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public V execute(K key, long timeoutMillis, Loader<V> loader) throws IOException {
+        return execute(key, timeoutMillis, loader, (value, e) -> true);
+    }
+
+    /**
+     * @param shareable 领导者的结果（value或异常，另一个为null）能否交给跟随者；不能时跟随者自行执行
+     */
+    public V execute(K key, long timeoutMillis, Loader<V> loader, BiPredicate<V, Throwable> shareable) throws IOException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing == null) {
+            leaders.increment();
+            try {
+                V value = loader.load();
+                if (shareable.test(value, null)) {
+                    future.complete(value);
+                } else {
+                    future.completeExceptionally(NOT_SHARED);
+                }
+                return value;
+            } catch (IOException | RuntimeException | Error e) {
+                future.completeExceptionally(shareable.test(null, e) ? e : NOT_SHARED);
+                throw e;
+            } finally {
+                inFlight.remove(key, future);
+            }
+        }
+
+        coalesced.increment();
+        try {
+            return existing.get(Math.max(0, timeoutMillis), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return loader.load();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for in-flight request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() == NOT_SHARED) {
+                return loader.load();
+            }
+            throw rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * 异步版本：跟随者直接复用在途的future，不额外占用线程等待
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        return executeAsync(key, loader, (value, e) -> true);
+    }
+
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader, BiPredicate<V, Throwable> shareable) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            // 包一层，避免某个调用方cancel影响其他调用方；领导者的结果不可共享时自行执行
+            CompletableFuture<V> result = new CompletableFuture<>();
+            existing.whenComplete((value, e) -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause == NOT_SHARED) {
+                    load(loader).whenComplete((own, ownError) -> complete(result, own, ownError));
+                } else {
+                    complete(result, value, cause);
+                }
+            });
+            return result;
+        }
+        leaders.increment();
+        CompletableFuture<V> source = load(loader);
+        CompletableFuture<V> result = new CompletableFuture<>();
+        source.whenComplete((value, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            inFlight.remove(key, future);
+            if (!shareable.test(value, cause)) {
+                future.completeExceptionally(NOT_SHARED);
+            } else {
+                complete(future, value, cause);
+            }
+            complete(result, value, cause);
+        });
+        return result;
+    }
+
+    private static <V> CompletableFuture<V> load(Supplier<CompletableFuture<V>> loader) {
+        try {
+            return loader.get();
+        } catch (RuntimeException e) {
+            CompletableFuture<V> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private static <V> void complete(CompletableFuture<V> future, V value, Throwable e) {
+        if (e != null) {
+            future.completeExceptionally(e);
+        } else {
+            future.complete(value);
+        }
+    }
+
+    static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    /**
+     * 实际执行的次数
+     */
+    public long getLeaderCount() {
+        return leaders.sum();
+    }
+
+    /**
+     * 复用在途请求结果的次数（含等待超时后自行执行的）
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}